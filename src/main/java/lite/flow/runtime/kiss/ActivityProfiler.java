@@ -0,0 +1,189 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 	CPU time and allocated bytes per activity and per component entry point,
+ * measured using current thread counters of ThreadMXBean.
+ * 
+ * To keep overhead low every sampleInterval-th call is measured, all calls are counted.
+ * Totals are estimated from sampled averages.
+ * Allocated bytes are 0 when JVM does not support thread allocation counters.
+ * 
+ * Set to flow using RunnableFlow.setProfiler, it is propagated to all activities.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class ActivityProfiler {
+
+	public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+	public static final class Stats {
+		public final String name;
+		private final LongAdder calls 			= new LongAdder();
+		private final LongAdder sampled 		= new LongAdder();
+		private final LongAdder cpuNanos 		= new LongAdder();
+		private final LongAdder allocatedBytes 	= new LongAdder();
+
+		Stats(String name) {
+			this.name = name;
+		}
+
+		public void count() {
+			calls.increment();
+		}
+
+		/**
+		 * 	Adds measurement of one sampled call.
+		 */
+		public void add(long cpu, long allocated) {
+			sampled.increment();
+			cpuNanos.add(cpu);
+			allocatedBytes.add(allocated);
+		}
+
+		public long calls() {
+			return calls.sum();
+		}
+
+		public long sampled() {
+			return sampled.sum();
+		}
+
+		public long avgCpuNanos() {
+			long sampled = sampled();
+			return sampled==0 ? 0 : cpuNanos.sum()/sampled;
+		}
+
+		public long avgAllocatedBytes() {
+			long sampled = sampled();
+			return sampled==0 ? 0 : allocatedBytes.sum()/sampled;
+		}
+
+		public long estimatedCpuNanos() {
+			return avgCpuNanos()*calls();
+		}
+
+		public long estimatedAllocatedBytes() {
+			return avgAllocatedBytes()*calls();
+		}
+
+		@Override
+		public String toString() {
+			return "Stats [name=" + name + ", calls=" + calls + ", sampled=" + sampled 
+					+ ", avgCpuNanos=" + avgCpuNanos() + ", avgAllocatedBytes=" + avgAllocatedBytes() + "]";
+		}
+	}
+
+	public final int sampleInterval;
+	private final ThreadMXBean threads;
+	private final com.sun.management.ThreadMXBean allocations;	// null when not supported
+	private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+	public ActivityProfiler() {
+		this(DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * @param sampleInterval	1 measures every call
+	 */
+	public ActivityProfiler(int sampleInterval) {
+		super();
+		if (sampleInterval<1)
+			throw new IllegalArgumentException("ActivityProfiler sampleInterval should be positive, but is " + sampleInterval);
+		this.sampleInterval = sampleInterval;
+		this.threads = ManagementFactory.getThreadMXBean();
+		if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled())
+			threads.setThreadCpuTimeEnabled(true);
+
+		com.sun.management.ThreadMXBean allocations = null;
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			allocations = (com.sun.management.ThreadMXBean) threads;
+			if (!allocations.isThreadAllocatedMemorySupported())
+				allocations = null;
+			else if (!allocations.isThreadAllocatedMemoryEnabled())
+				allocations.setThreadAllocatedMemoryEnabled(true);
+		}
+		this.allocations = allocations;
+	}
+
+	/**
+	 * 	Stats are created once per name, callers should keep returned instance.
+	 */
+	public Stats stats(String name) {
+		return stats.computeIfAbsent(name, Stats::new);
+	}
+
+	/**
+	 * 	Counts call.
+	 * 
+	 * @return true when this call should be measured
+	 */
+	public boolean count(Stats stats) {
+		stats.count();
+		return sampleInterval==1 || ThreadLocalRandom.current().nextInt(sampleInterval)==0;
+	}
+
+	public long cpuTime() {
+		return threads.getCurrentThreadCpuTime();
+	}
+
+	public long allocatedBytes() {
+		return allocations==null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @param startCpuTime			{@link #cpuTime()} before measured code
+	 * @param startAllocatedBytes	{@link #allocatedBytes()} before measured code
+	 */
+	public void record(Stats stats, long startCpuTime, long startAllocatedBytes) {
+		stats.add(cpuTime() - startCpuTime, allocatedBytes() - startAllocatedBytes);
+	}
+
+	/**
+	 * @return snapshot of stats, most CPU consuming first
+	 */
+	public List<Stats> results() {
+		List<Stats> results = new ArrayList<>(stats.values());
+		results.sort(Comparator.comparingLong(Stats::estimatedCpuNanos).reversed());
+		return results;
+	}
+
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-40s %10s %10s %14s %14s %16s%n", "name", "calls", "sampled", "avgCpuNanos", "avgAllocBytes", "estCpuMillis"));
+		for (Stats result : results())
+			sb.append(String.format("%-40s %10d %10d %14d %14d %16d%n", result.name, result.calls(), result.sampled()
+					, result.avgCpuNanos(), result.avgAllocatedBytes(), result.estimatedCpuNanos()/1_000_000));
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "ActivityProfiler [sampleInterval=" + sampleInterval + ", stats=" + stats.size() 
+				+ ", allocationsSupported=" + (allocations!=null) + "]";
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 	Marks component which blocks on I/O (JDBC, files, remote calls).
+ * Runtime invokes its entry points on separate bounded {@link BlockingExecutor},
+ * so activity threads and CPU bound components are not stalled by it.
+ * 
+ * Components which can not be annotated can be marked using component parameter {@link #PARAMETER},
+ * value Boolean.TRUE or Integer maxConcurrency.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Blocking {
+
+	String PARAMETER = "blocking";
+
+	/**
+	 * 	How many invocations of same component instance may run concurrently.
+	 * Default 1 keeps sequential invocation, so component need not be thread safe.
+	 */
+	int maxConcurrency() default 1;
+}
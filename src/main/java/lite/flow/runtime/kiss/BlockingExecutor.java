@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.api.flow.define.Component;
+
+/**
+ * 	Bulkhead for {@link Blocking} components: bounded thread pool with bounded queue.
+ * When queue is full, submitting activity thread runs invocation itself, 
+ * so backpressure reaches only blocking component input queue.
+ * 
+ * Threads are created on demand and are daemon threads.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class BlockingExecutor implements Executor {
+
+	public static final int DEFAULT_THREADS 		= 16;
+	public static final int DEFAULT_QUEUE_CAPACITY 	= 1000;
+
+	public final String name;
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong callerRuns = new AtomicLong();
+
+	public BlockingExecutor(String name) {
+		this(name, DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	public BlockingExecutor(String name, int threads, int queueCapacity) {
+		super();
+		this.name = name;
+		AtomicInteger threadNr = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadNr.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		RejectedExecutionHandler callerRunsPolicy = (runnable, pool) -> {
+			callerRuns.incrementAndGet();
+			if (!pool.isShutdown())
+				runnable.run();
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS
+				, new ArrayBlockingQueue<>(queueCapacity), threadFactory, callerRunsPolicy);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return max concurrency when component is marked blocking, 0 otherwise
+	 */
+	public static int blockingConcurrency(Component component) {
+		Blocking blocking = component.componentClazz.getAnnotation(Blocking.class);
+		if (blocking!=null)
+			return Math.max(1, blocking.maxConcurrency());
+
+		Object parameter = component.parameters==null ? null : component.parameters.get(Blocking.PARAMETER);
+		if (Boolean.TRUE.equals(parameter))
+			return 1;
+		if (parameter instanceof Integer)
+			return Math.max(1, (Integer) parameter);
+		return 0;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		executor.execute(command);
+	}
+
+	public int activeCount() {
+		return executor.getActiveCount();
+	}
+
+	public int queued() {
+		return executor.getQueue().size();
+	}
+
+	public long completed() {
+		return executor.getCompletedTaskCount();
+	}
+
+	/**
+	 * @return how many times queue was full and submitting thread run invocation
+	 */
+	public long callerRuns() {
+		return callerRuns.get();
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public String toString() {
+		return "BlockingExecutor [name=" + name + ", active=" + activeCount() + ", queued=" + queued() 
+				+ ", completed=" + completed() + ", callerRuns=" + callerRuns + "]";
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.util.UniqueId;
+
+/**
+ * 	Flow wide set of cancelled requests, see RunnableFlow.cancel.
+ * 
+ * Activities skip queued messages of cancelled requests, correlators drop their rows.
+ * Running component invocation is not interrupted, 
+ * long running component can check {@link #isCurrentRequestCancelled()} and stop cooperatively.
+ * 
+ * Cancelled request ids are forgotten after retentionMillis, 
+ * by then request messages are either processed or dropped by correlation timeout.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class Cancellations {
+
+	private static final ThreadLocal<Cancellations> current = new ThreadLocal<>();
+
+	public final long retentionMillis;
+	// cancel time by request id
+	private final Map<UniqueId, Long> cancelled = new ConcurrentHashMap<>();
+
+	private final AtomicLong cancelledRequests 	= new AtomicLong();
+	private final AtomicLong skippedMessages 	= new AtomicLong();
+	private final AtomicLong droppedRows 		= new AtomicLong();
+
+	public Cancellations() {
+		this(3L*Correlator.MAX_PARAMETER_WAIT_TIME);
+	}
+
+	public Cancellations(long retentionMillis) {
+		super();
+		this.retentionMillis = retentionMillis;
+	}
+
+	/**
+	 * @return false when request was already cancelled
+	 */
+	public boolean cancel(UniqueId requestId) {
+		requireNonNull(requestId, "Cancellations.cancel requestId should not be null");
+		long now = System.currentTimeMillis();
+		expire(now);
+		if (cancelled.putIfAbsent(requestId, now)!=null)
+			return false;
+		cancelledRequests.incrementAndGet();
+		return true;
+	}
+
+	private void expire(long now) {
+		for (Iterator<Long> cancelTimes = cancelled.values().iterator(); cancelTimes.hasNext();)
+			if (cancelTimes.next()+retentionMillis<now)
+				cancelTimes.remove();
+	}
+
+	/**
+	 * 	Cheap check before lookups, true in most cases.
+	 */
+	public boolean isEmpty() {
+		return cancelled.isEmpty();
+	}
+
+	public boolean isCancelled(UniqueId requestId) {
+		return requestId!=null && !cancelled.isEmpty() && cancelled.containsKey(requestId);
+	}
+
+	public boolean isCancelled(RequestContext requestContext) {
+		return requestContext!=null && isCancelled(requestContext.getRequestId());
+	}
+
+	/**
+	 * 	For long running components: true when request of current component invocation is cancelled.
+	 */
+	public static boolean isCurrentRequestCancelled() {
+		Cancellations cancellations = current.get();
+		return cancellations!=null && cancellations.isCancelled(RequestContextCarrier.getRequestContext());
+	}
+
+	/**
+	 * 	Binds cancellations to current thread for component invocation, like RequestContextCarrier.bind.
+	 * 
+	 * @return previously bound cancellations, should be passed to restore
+	 */
+	static Cancellations bind(Cancellations cancellations) {
+		Cancellations previous = current.get();
+		current.set(cancellations);
+		return previous;
+	}
+
+	static void restore(Cancellations previous) {
+		current.set(previous);
+	}
+
+	void messageSkipped() {
+		skippedMessages.incrementAndGet();
+	}
+
+	void rowDropped() {
+		droppedRows.incrementAndGet();
+	}
+
+	public long cancelledRequests() {
+		return cancelledRequests.get();
+	}
+
+	public long skippedMessages() {
+		return skippedMessages.get();
+	}
+
+	public long droppedRows() {
+		return droppedRows.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Cancellations [cancelled=" + cancelled.size() + ", cancelledRequests=" + cancelledRequests 
+				+ ", skippedMessages=" + skippedMessages + ", droppedRows=" + droppedRows + "]";
+	}
+}
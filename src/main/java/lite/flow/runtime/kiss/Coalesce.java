@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 	Marks component entry point whose concurrent invocations with equal arguments are coalesced,
+ * see {@link SingleFlight}. Nothing is kept after invocation completes.
+ * 
+ * Invocations overlap only when component is {@link Blocking}, 
+ * otherwise calls are sequential and there is nothing to coalesce.
+ * Like {@link Memoize}, used only for components without explicit Output port.
+ * Result which is {@link lite.flow.runtime.kiss.data.OffHeapPayload} is retained once per joined request.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+
+}
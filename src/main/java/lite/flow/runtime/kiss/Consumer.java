@@ -21,5 +21,24 @@ public interface Consumer {
 
 	public boolean enqueue(DCMessage dcmsg);
 
+	/**
+	 * 	Enqueue message to given input.
+	 * Same message can be enqueued to many consumers, so implementation should not modify it.
+	 * Default implementation creates message copy with destinationName.
+	 * 
+	 * @param dcmsg
+	 * @param destinationName	consumer input name
+	 */
+	default public boolean enqueue(DCMessage dcmsg, String destinationName) {
+		return enqueue(dcmsg.cloneChangeDestinationName(destinationName));
+	}
+
 	public boolean canBeEnqueued();
+
+	/**
+	 * 	Number of messages waiting in consumer, used for least loaded distribution.
+	 */
+	default public int queueDepth() {
+		return 0;
+	}
 }
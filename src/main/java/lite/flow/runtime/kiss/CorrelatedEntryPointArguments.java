@@ -22,29 +22,99 @@ import java.util.Arrays;
 import lite.flow.util.UniqueId;
 import lite.flow.util.ActivityInspector.EntryPoint;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.DeadlineAware;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
 
 /**
  * 	Encapsulates all data needed for method invocation.
  * 	
+ * When created from pool, arguments are recycled after method invocation using release,
+ * so row and its arrays must not be referenced after that.
+ * 
+ * When primitiveInvoker is given, arguments are kept unboxed in primitiveArgs (as long bits)
+ * and inputArgs is not used.
+ * 
  * @author ToivoAdams
  *
  */
 public class CorrelatedEntryPointArguments {
 
 	public final Object[] 	inputArgs;
+	public final long[] 	primitiveArgs;	// null when primitiveInvoker is null
 	public final boolean[] 	hasValues;
-	public final long 		createTime = System.currentTimeMillis();
-	public final UniqueId 	dcid;	// data correlation id
+	// createTime and dcid are reassigned only when row is recycled from pool
+	public long 			createTime = System.currentTimeMillis();
+	public UniqueId 		dcid;	// data correlation id
+	public long 			chargedBytes;	// memory budget charge, see MemoryBudget
+	public long 			deadline;		// request deadline or DeadlineAware.NO_DEADLINE
 	public final EntryPoint entryPoint;
+	public final PrimitiveInvoker primitiveInvoker;
+	private final ObjectPool<CorrelatedEntryPointArguments> pool;
 	
 	public CorrelatedEntryPointArguments(UniqueId dcid, EntryPoint entryPoint) {
-		super();
+		this(dcid, entryPoint, null);
+	}
+
+	/**
+	 * @param primitiveInvoker	entry point invoker without boxing or null
+	 */
+	public CorrelatedEntryPointArguments(UniqueId dcid, EntryPoint entryPoint, PrimitiveInvoker primitiveInvoker) {
+		this(entryPoint, primitiveInvoker, null);
 		requireNonNull(dcid, "CollectedMethodParametersRow() argNames should not be null");
-		requireNonNull(entryPoint, "CollectedMethodParametersRow() entryPoint should not be null");
 		this.dcid = dcid;
+	}
+
+	/**
+	 * 	Pooled row, use reset before first use.
+	 */
+	CorrelatedEntryPointArguments(EntryPoint entryPoint, PrimitiveInvoker primitiveInvoker, ObjectPool<CorrelatedEntryPointArguments> pool) {
+		super();
+		requireNonNull(entryPoint, "CollectedMethodParametersRow() entryPoint should not be null");
 		this.inputArgs = new Object[entryPoint.inputNames.length];
+		this.primitiveArgs = primitiveInvoker==null ? null : new long[entryPoint.inputNames.length];
 		this.hasValues = new boolean[entryPoint.inputNames.length];
 		this.entryPoint = entryPoint;
+		this.primitiveInvoker = primitiveInvoker;
+		this.pool = pool;
+	}
+
+	final CorrelatedEntryPointArguments reset(UniqueId dcid) {
+		requireNonNull(dcid, "CollectedMethodParametersRow.reset dcid should not be null");
+		this.dcid = dcid;
+		this.createTime = System.currentTimeMillis();
+		return this;
+	}
+
+	public final boolean isPooled() {
+		return pool!=null;
+	}
+
+	/**
+	 * 	Releases row references to OffHeapPayload arguments, 
+	 * called after method invocation or when row is discarded.
+	 */
+	public final void releasePayloads() {
+		for (int i = 0; i < inputArgs.length; i++)
+			if (hasValues[i])
+				OffHeapPayload.releaseIfPayload(inputArgs[i], 1);
+	}
+
+	/**
+	 * 	Returns pooled row to its pool, does nothing when row is not pooled.
+	 */
+	public final void release() {
+		if (pool==null)
+			return;
+
+		Arrays.fill(inputArgs, null);
+		if (primitiveArgs!=null)
+			Arrays.fill(primitiveArgs, 0);
+		Arrays.fill(hasValues, false);
+		dcid = null;
+		chargedBytes = 0;
+		deadline = DeadlineAware.NO_DEADLINE;
+		pool.release(this);
 	}
 	
 	public final boolean hasAllValues() {
@@ -55,18 +125,62 @@ public class CorrelatedEntryPointArguments {
 	}
 
 	public final void put(DataMessage<?> dmsg) {
-		int index = findParameterIndex(dmsg.dataName);
+		put(dmsg.dataName, dmsg);
+	}
+
+	/**
+	 * @param inputName		input name message was sent to, message dataName is not used
+	 * @param dmsg
+	 */
+	public final void put(String inputName, DataMessage<?> dmsg) {
+		int index = emptySlot(inputName, dmsg);
+		if (primitiveArgs!=null)
+			primitiveArgs[index] = primitiveInvoker.parameterKinds[index].toBits(dmsg.data);
+		else
+			inputArgs[index] = dmsg.data;
+		hasValues[index] = true;
+	}
+
+	/**
+	 * 	Value is boxed only when entry point is not invoked using primitiveInvoker.
+	 * 
+	 * @param inputName		input name message was sent to, message dataName is not used
+	 */
+	public final void put(String inputName, PrimitiveDataMessage pmsg) {
+		int index = emptySlot(inputName, pmsg);
+		if (primitiveArgs!=null)
+			primitiveArgs[index] = pmsg.bitsAs(primitiveInvoker.parameterKinds[index]);
+		else
+			inputArgs[index] = pmsg.boxed();
+		hasValues[index] = true;
+	}
+
+	private final int emptySlot(String inputName, Object msg) {
+		int index = findParameterIndex(inputName);
 		if (index<0) {
 			throw new IllegalArgumentException("incoming data name does not match with any argument name, incoming="
-					+ dmsg + " argNames=" + Arrays.toString(entryPoint.inputNames));        		
+					+ msg + " argNames=" + Arrays.toString(entryPoint.inputNames));        		
 		}
 		if (hasValues[index]) {
 			throw new IllegalArgumentException("has value already, rejecting, incoming="
-					+ dmsg + " argNames=" + Arrays.toString(entryPoint.inputNames) + " inputParams=" + Arrays.toString(inputArgs) + " hasValues=" + Arrays.toString(hasValues));        					
+					+ msg + " argNames=" + Arrays.toString(entryPoint.inputNames) + " inputParams=" + Arrays.toString(argValues()) + " hasValues=" + Arrays.toString(hasValues));        					
 		}
+		return index;
+	}
 
-		inputArgs[index] = dmsg.data;
-		hasValues[index] = true;
+	/**
+	 * @return argument values, primitive arguments are boxed to new array,
+	 * 			pooled row returns copy because its arrays are cleared and reused after release
+	 */
+	public final Object[] argValues() {
+		if (primitiveArgs==null)
+			return pool==null ? inputArgs : inputArgs.clone();
+
+		Object[] values = new Object[primitiveArgs.length];
+		for (int i = 0; i < values.length; i++)
+			if (hasValues[i])
+				values[i] = primitiveInvoker.parameterKinds[i].box(primitiveArgs[i]);
+		return values;
 	}
 
 	private final int findParameterIndex(String dataName) {
@@ -82,7 +196,7 @@ public class CorrelatedEntryPointArguments {
 	@Override
 	public String toString() {
 		return "CorrelatedEntryPointArguments[" + ", inputParams="
-				+ Arrays.toString(inputArgs) + ", hasValues=" + Arrays.toString(hasValues) + ", createTime="
+				+ Arrays.toString(argValues()) + ", hasValues=" + Arrays.toString(hasValues) + ", createTime="
 				+ createTime + ", dcid=" + dcid + ", entryPoint=" + entryPoint + "]";
 	}
 }
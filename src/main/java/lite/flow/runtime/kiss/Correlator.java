@@ -15,20 +15,36 @@
  */
 package lite.flow.runtime.kiss;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 
+import lite.flow.api.activity.RequestContext;
 import lite.flow.util.UniqueId;
 import lite.flow.util.ActivityInspector.EntryPoint;
 import lite.flow.runtime.kiss.DistributorOutput.Destination;
+import lite.flow.runtime.kiss.data.CancelCommand;
+import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.DeadlineAware;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
 import lite.log.api.ExecutionContext;
 import lite.log.api.Log;
 import lite.log.api.LogFactory;
 import lite.log.api.event.MiddleEvent;
+import lite.log.jfr.FlowEvents;
 
 /**
+ * 	Collects entry point arguments of same request.
+ * 
+ * When ObjectPool.ENABLED, argument rows are taken from pool and released by MethodInvokerSequential
+ * after method invocation. Completed rows are then removed immediately, so late duplicate
+ * arguments are not detected in pooled mode.
+ * 
+ * Partial rows are charged to memory budget, charge is released when row is complete. 
+ * When budget is exceeded, least recently used partial rows may be evicted.
+ * 
  * @author ToivoAdams
  *
  */
@@ -39,25 +55,129 @@ public class Correlator extends SequentialActivity {
 
 	private final EntryPoint entryPoint;
 	private final String[] argNames;
+	private final PrimitiveInvoker primitiveInvoker;
+	private final ObjectPool<CorrelatedEntryPointArguments> rowPool;
 	
 	public Correlator(Integer inputQueueLength, ExecutionContext executionContext, EntryPoint entryPoint, LogFactory logFactory) {
 		super(inputQueueLength, executionContext, logFactory);
 		this.entryPoint = entryPoint;
 		this.argNames = entryPoint.inputNames;
+		this.primitiveInvoker = PrimitiveInvoker.forMethod(entryPoint.method);
+		this.rowPool = ObjectPool.ENABLED 
+				? new ObjectPool<>(executionContext + "." + entryPoint.method.getName(), pool -> new CorrelatedEntryPointArguments(entryPoint, primitiveInvoker, pool)) 
+				: null;
+	}
+
+	/**
+	 * @return argument rows pool or null when pooling is not enabled
+	 */
+	public final ObjectPool<CorrelatedEntryPointArguments> getRowPool() {
+		return rowPool;
 	}
 
 	@Log
 	@Override
-	public Object processDataMessage(DataMessage<?> dataMessage) {
+	public Object processDataMessage(DataMessage<?> dataMessage, String inputName) {
 //    	System.out.println("===============> Correlator.processMessage");
     	
-    	CorrelatedEntryPointArguments row = getOrPut(argNames, dataMessage.context.getRequestId(), entryPoint);
-    	row.put(dataMessage);
+    	evictExpired();
+    	UniqueId dcid = dataMessage.context.getRequestId();
+    	CorrelatedEntryPointArguments row = getOrPut(argNames, dcid, entryPoint);
+    	row.deadline = DeadlineAware.deadlineOf(dataMessage.context);
+    	row.put(inputName, dataMessage);
+    	MemoryBudget budget = memoryBudget;
+    	if (budget!=null)
+    		charge(budget, row, budget.sizeOf(dataMessage.data));
+    	return emitWhenComplete(row, dataMessage.context);
+	}
+
+	@Log
+	@Override
+	public Object processPrimitiveDataMessage(PrimitiveDataMessage dataMessage, String inputName) {
+    	evictExpired();
+    	UniqueId dcid = dataMessage.context.getRequestId();
+    	CorrelatedEntryPointArguments row = getOrPut(argNames, dcid, entryPoint);
+    	row.deadline = DeadlineAware.deadlineOf(dataMessage.context);
+    	row.put(inputName, dataMessage);
+    	MemoryBudget budget = memoryBudget;
+    	if (budget!=null)
+    		charge(budget, row, 8);
+    	return emitWhenComplete(row, dataMessage.context);
+	}
+
+	private void charge(MemoryBudget budget, CorrelatedEntryPointArguments row, long bytes) {
+		if (row.chargedBytes==0)
+			bytes += MemoryBudget.ROW_OVERHEAD;
+		row.chargedBytes += bytes;
+		budget.charge(bytes);
+		if (budget.shouldEvictRows())
+			evictOverBudget(budget, row);
+	}
+
+	/**
+	 * 	Removes least recently used partial rows until budget is not exceeded.
+	 */
+	private void evictOverBudget(MemoryBudget budget, CorrelatedEntryPointArguments current) {
+		Iterator<CorrelatedEntryPointArguments> rows = rowsHolder.values().iterator();
+		while (budget.shouldEvictRows() && rows.hasNext()) {
+			CorrelatedEntryPointArguments row = rows.next();
+			if (row==current || row.hasAllValues())
+				continue;
+			rows.remove();
+			FlowEvents.correlationDiscarded(executionContext, entryPoint.method.getName(), row.dcid, "memory budget exceeded");
+			discard(row, "memory budget exceeded, remove CollectedMethodParametersRow=");
+			budget.rowEvicted();
+		}
+	}
+
+	/**
+	 * 	Row is not emitted, release everything it holds.
+	 */
+	private void discard(CorrelatedEntryPointArguments row, String reason) {
+		MiddleEvent middleEvent = new MiddleEvent(Level.WARNING, reason + row, null, executionContext, logFactory.newCid());
+		logFactory.logger().log(middleEvent);
+		if (!row.hasAllValues()) {
+			// complete row payloads and charge are already passed to receiver
+			MemoryBudget budget = memoryBudget;
+			if (budget!=null)
+				budget.release(row.chargedBytes);
+			row.releasePayloads();
+		}
+		row.release();
+	}
+
+	/**
+	 * 	Complete row was not accepted by receiver (queue full or budget exceeded),
+	 * nobody else releases it.
+	 */
+	private void notDelivered(CorrelatedEntryPointArguments row, UniqueId dcid) {
+		FlowEvents.correlationDiscarded(executionContext, entryPoint.method.getName(), dcid, "not delivered");
+		MiddleEvent middleEvent = new MiddleEvent(Level.WARNING, "receiver rejected CollectedMethodParametersRow=" + row, null, executionContext, logFactory.newCid());
+		logFactory.logger().log(middleEvent);
+		row.releasePayloads();
+		row.release();
+	}
 
+	private Object emitWhenComplete(CorrelatedEntryPointArguments row, RequestContext requestContext) {
     	if (row.hasAllValues()) {
+    		MemoryBudget budget = memoryBudget;
+    		if (budget!=null)
+    			// from now on row is charged by receiver queue
+    			budget.release(row.chargedBytes);
+
+    		if (rowPool!=null) {
+    			// pooled row is released by receiver, so we must forget it before emit
+    			UniqueId dcid = row.dcid;
+    			rowsHolder.remove(dcid);
+    			if (correlatedInputs.distribute(row, requestContext)==0)
+    				notDelivered(row, dcid);
+    			return dcid;
+    		}
+
     //		DataMessage<?> outDataMessage = new DataMessage<CollectedMethodParametersRow>(dataMessage.context, "correlatedInputs", row);
     //		rcc.setRequestContext(dataMessage.context);
-    		correlatedInputs.emit(row, dataMessage.context);
+    		if (correlatedInputs.distribute(row, requestContext)==0)
+    			notDelivered(row, row.dcid);
     		// we should remove row from map because we are done with this row
     		// Note!!! Actually we should not remove row!!!
     		// We want catch invalid duplicates and CollectedMethodParametersRow will do this!
@@ -67,17 +187,57 @@ public class Correlator extends SequentialActivity {
     	return row;
 	}
 
-	public static int MAX_PARAMETER_WAIT_TIME = 20000; // milliseconds 
+	public static int MAX_PARAMETER_WAIT_TIME = 20000; // milliseconds, used when request has no deadline
+	public static int EXPIRED_SWEEP_INTERVAL = 100; // milliseconds
+
+	private long nextSweep;
+
+	/**
+	 * 	Rows wait until request deadline, or MAX_PARAMETER_WAIT_TIME when request has no deadline.
+	 */
+	private static boolean isExpired(CorrelatedEntryPointArguments row, long now) {
+		if (row.deadline!=DeadlineAware.NO_DEADLINE)
+			return row.deadline<now;
+		return (row.createTime+MAX_PARAMETER_WAIT_TIME)<now;
+	}
+
+	/**
+	 * 	Removes partial rows whose request deadline has passed, 
+	 * at most once per EXPIRED_SWEEP_INTERVAL. Eldest row check alone would miss them,
+	 * because requests may have different deadlines.
+	 */
+	private void evictExpired() {
+		long now = System.currentTimeMillis();
+		if (now<nextSweep)
+			return;
+		nextSweep = now + EXPIRED_SWEEP_INTERVAL;
+		Iterator<CorrelatedEntryPointArguments> rows = rowsHolder.values().iterator();
+		while (rows.hasNext()) {
+			CorrelatedEntryPointArguments row = rows.next();
+			if (row.deadline==DeadlineAware.NO_DEADLINE || row.hasAllValues() || row.deadline>=now)
+				continue;
+			rows.remove();
+			expirations.incrementAndGet();
+			FlowEvents.correlationDiscarded(executionContext, entryPoint.method.getName(), row.dcid, "deadline");
+			discard(row, "request deadline passed, remove CollectedMethodParametersRow=");
+		}
+	}
 	
 	private final Map<UniqueId, CorrelatedEntryPointArguments> rowsHolder = new LinkedHashMap<UniqueId, CorrelatedEntryPointArguments>(70, 0.7f, true) {
         @Override
         protected boolean removeEldestEntry(Map.Entry<UniqueId, CorrelatedEntryPointArguments> eldest) {
         	
         	long currentTime = System.currentTimeMillis();
-        	if ((eldest.getValue().createTime+MAX_PARAMETER_WAIT_TIME)<currentTime) {
+        	CorrelatedEntryPointArguments row = eldest.getValue();
+        	if (isExpired(row, currentTime)) {
         		// too old, inform manager and remove
-				MiddleEvent middleEvent = new MiddleEvent(Level.WARNING, "remove old CollectedMethodParametersRow=" + eldest, null, executionContext, logFactory.newCid());
-				logFactory.logger().log(middleEvent);
+        		if (!row.hasAllValues()) {
+        			boolean deadlinePassed = row.deadline!=DeadlineAware.NO_DEADLINE;
+        			if (deadlinePassed)
+        				expirations.incrementAndGet();
+        			FlowEvents.correlationDiscarded(executionContext, entryPoint.method.getName(), eldest.getKey(), deadlinePassed ? "deadline" : "timeout");
+        		}
+				discard(row, "remove old CollectedMethodParametersRow=");
                 return true; 
         	}
         	return false;
@@ -88,7 +248,8 @@ public class Correlator extends SequentialActivity {
     	if (rowsHolder.containsKey(dcid))
     		return rowsHolder.get(dcid);
 
-    	CorrelatedEntryPointArguments collectedMethodParametersRow = new CorrelatedEntryPointArguments(dcid, entryPoint);
+    	CorrelatedEntryPointArguments collectedMethodParametersRow = rowPool!=null 
+    			? rowPool.acquire().reset(dcid) : new CorrelatedEntryPointArguments(dcid, entryPoint, primitiveInvoker);
     	rowsHolder.put(dcid, collectedMethodParametersRow);
     	return collectedMethodParametersRow;
     }
@@ -100,4 +261,33 @@ public class Correlator extends SequentialActivity {
 		correlatedInputs.addDestination(new Destination(destinationName, consumer));
 	}
 
+	@Override
+	public void setDistribution(String outputName, DistributionStrategy strategy) {
+		correlatedInputs.setStrategy(strategy);
+	}
+
+	/**
+	 * 	Drops row of cancelled request right away.
+	 */
+	@Override
+	public void processCommandMessage(DCMessage commandMessage, String inputName) {
+		if (!(commandMessage instanceof CancelCommand))
+			return;
+		UniqueId requestId = ((CancelCommand) commandMessage).requestId;
+		CorrelatedEntryPointArguments row = rowsHolder.remove(requestId);
+		// complete row is already emitted, it is kept only to catch duplicates
+		if (row==null || row.hasAllValues())
+			return;
+		FlowEvents.correlationDiscarded(executionContext, entryPoint.method.getName(), requestId, "cancelled");
+		Cancellations cancellations = this.cancellations;
+		if (cancellations!=null)
+			cancellations.rowDropped();
+		discard(row, "request cancelled, remove CollectedMethodParametersRow=");
+	}
+
+	@Override
+	protected String profileName() {
+		return super.profileName() + "/" + entryPoint.method.getName() + "/correlate";
+	}
+
 }
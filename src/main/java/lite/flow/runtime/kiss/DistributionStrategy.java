@@ -0,0 +1,156 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import lite.flow.runtime.kiss.DistributorOutput.Destination;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
+
+/**
+ * 	How DistributorOutput delivers message to its destinations.
+ * 
+ * Strategy instance keeps state (round robin position), so each output needs its own instance.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public interface DistributionStrategy {
+
+	static final Function<Object,Object> IDENTITY = data -> data;
+
+	/**
+	 * @param destinations	never empty
+	 * @return number of destinations which accepted message
+	 */
+	public int distribute(DCMessage message, Destination[] destinations);
+
+	public static DistributionStrategy broadcast() {
+		return new Broadcast();
+	}
+
+	public static DistributionStrategy roundRobin() {
+		return new RoundRobin();
+	}
+
+	/**
+	 * 	Partition by message data, same data goes always to same destination.
+	 */
+	public static DistributionStrategy keyHash() {
+		return new KeyHash(IDENTITY);
+	}
+
+	public static DistributionStrategy keyHash(Function<Object,Object> keyExtractor) {
+		return new KeyHash(keyExtractor);
+	}
+
+	public static DistributionStrategy leastLoaded() {
+		return new LeastLoaded();
+	}
+
+	/**
+	 * 	Every destination gets message, default.
+	 */
+	static class Broadcast implements DistributionStrategy {
+		@Override
+		public int distribute(DCMessage message, Destination[] destinations) {
+			int delivered = 0;
+			for (int i = 0; i < destinations.length; i++) {
+				Destination destination = destinations[i];
+				if (destination.consumer.enqueue(message, destination.destinationName))
+					delivered++;
+			}
+			return delivered;
+		}
+	}
+
+	/**
+	 * 	Destinations take turns, when destination rejects message next one is tried.
+	 */
+	static class RoundRobin implements DistributionStrategy {
+		private final AtomicInteger next = new AtomicInteger();
+
+		@Override
+		public int distribute(DCMessage message, Destination[] destinations) {
+			int start = Math.floorMod(next.getAndIncrement(), destinations.length);
+			for (int i = 0; i < destinations.length; i++) {
+				Destination destination = destinations[(start + i) % destinations.length];
+				if (destination.consumer.enqueue(message, destination.destinationName))
+					return 1;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * 	Key hash partitioning. Destination is not changed when it is full, message order per key is kept.
+	 */
+	static class KeyHash implements DistributionStrategy {
+		private final Function<Object,Object> keyExtractor;
+
+		KeyHash(Function<Object,Object> keyExtractor) {
+			this.keyExtractor = keyExtractor;
+		}
+
+		private int hash(DCMessage message) {
+			if (message instanceof PrimitiveDataMessage && keyExtractor==IDENTITY)
+				return ((PrimitiveDataMessage) message).valueHashCode();
+
+			Object data = message instanceof DataMessage ? ((DataMessage<?>) message).data
+					: message instanceof PrimitiveDataMessage ? ((PrimitiveDataMessage) message).boxed() : null;
+			Object key = keyExtractor.apply(data);
+			return key==null ? 0 : key.hashCode();
+		}
+
+		@Override
+		public int distribute(DCMessage message, Destination[] destinations) {
+			int h = hash(message);
+			h ^= (h >>> 16);
+			Destination destination = destinations[Math.floorMod(h, destinations.length)];
+			return destination.consumer.enqueue(message, destination.destinationName) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * 	Destination which can be enqueued and has shortest queue.
+	 * Search starts from rotating position, so equally loaded destinations share the work.
+	 */
+	static class LeastLoaded implements DistributionStrategy {
+		private final AtomicInteger next = new AtomicInteger();
+
+		@Override
+		public int distribute(DCMessage message, Destination[] destinations) {
+			int start = Math.floorMod(next.getAndIncrement(), destinations.length);
+			Destination best = null;
+			int bestDepth = Integer.MAX_VALUE;
+			boolean bestCanBeEnqueued = false;
+			for (int i = 0; i < destinations.length; i++) {
+				Destination destination = destinations[(start + i) % destinations.length];
+				boolean canBeEnqueued = destination.consumer.canBeEnqueued();
+				int depth = destination.consumer.queueDepth();
+				if (best==null || (canBeEnqueued && !bestCanBeEnqueued) || (canBeEnqueued==bestCanBeEnqueued && depth<bestDepth)) {
+					best = destination;
+					bestDepth = depth;
+					bestCanBeEnqueued = canBeEnqueued;
+				}
+			}
+			return best.consumer.enqueue(message, best.destinationName) ? 1 : 0;
+		}
+	}
+}
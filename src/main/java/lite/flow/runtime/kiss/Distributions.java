@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lite.flow.api.flow.define.Connection;
+
+/**
+ * 	Distribution strategies of flow activity outputs.
+ * Outputs without strategy broadcast to all connected destinations.
+ * 
+ * Strategy is property of output, so all connections from same output share it.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class Distributions {
+
+	private final Map<String, DistributionStrategy> strategies = new HashMap<>();
+
+	public Distributions set(Connection connection, DistributionStrategy strategy) {
+		requireNonNull(connection, "Distributions.set connection should not be null");
+		return set(connection.from.name, connection.fromPort, strategy);
+	}
+
+	public Distributions set(String activityName, String outputName, DistributionStrategy strategy) {
+		requireNonNull(strategy, "Distributions.set strategy should not be null");
+		String key = key(activityName, outputName);
+		DistributionStrategy existing = strategies.get(key);
+		if (existing!=null && existing!=strategy)
+			throw new IllegalArgumentException("Activity '" + activityName + "' output '" + outputName + "' has already distribution strategy " + existing);
+		strategies.put(key, strategy);
+		return this;
+	}
+
+	public DistributionStrategy get(String activityName, String outputName) {
+		return strategies.get(key(activityName, outputName));
+	}
+
+	private static String key(String activityName, String outputName) {
+		return activityName + "." + outputName;
+	}
+}
@@ -15,10 +15,13 @@
  */
 package lite.flow.runtime.kiss;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
 
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage.Kind;
 import lite.flow.api.activity.RequestContext;
 import lite.flow.runtime.kiss.Consumer;
 
@@ -34,29 +37,39 @@ public class DistributorOutput<T> extends NamedOutput<T> {
 		}
 	}
 
-	private final List<Destination> destinations = new ArrayList<>();
-	public final RequestContextCarrier rcc;
-	
-	public DistributorOutput(String outputName, RequestContextCarrier rcc) {
-		super(outputName);
-		this.rcc = rcc;
-	}
+	// array, not list, so that distribute does not create iterator
+	private volatile Destination[] destinations = new Destination[0];
+	private volatile DistributionStrategy strategy = DistributionStrategy.broadcast();
 
 	public DistributorOutput(String outputName) {
 		super(outputName);
-		this.rcc = null;
 	}
 
 	public final void addDestination(Destination destination) {
-		destinations.add(destination);
+		Destination[] newDestinations = Arrays.copyOf(destinations, destinations.length + 1);
+		newDestinations[destinations.length] = destination;
+		destinations = newDestinations;
+	}
+
+	public final void setStrategy(DistributionStrategy strategy) {
+		Objects.requireNonNull(strategy, "DistributorOutput.setStrategy strategy should not be null");
+		this.strategy = strategy;
+	}
+
+	public final DistributionStrategy getStrategy() {
+		return strategy;
 	}
 
+	/**
+	 * 	Request context is taken from current thread, see {@link RequestContextCarrier}.
+	 */
 	@Override
 	public void emit(T data) {
-		if (rcc==null)
-			throw new IllegalArgumentException("Distributor: Cannot emit because RequestContextCarrier is null.");
+		RequestContext requestContext = RequestContextCarrier.getRequestContext();
+		if (requestContext==null)
+			throw new IllegalStateException("Distributor: Cannot emit because request context is not bound to current thread.");
 		
-		emit(data, rcc.getRequestContext());
+		emit(data, requestContext);
 	}
 
 	@Override
@@ -64,10 +77,40 @@ public class DistributorOutput<T> extends NamedOutput<T> {
 		distribute(data, requestContext);
 	}
 
-	public void distribute(T data, RequestContext requestContext) {
-		for (Destination destination : destinations) {
-			DataMessage<?> outDataMessage = new DataMessage<>(requestContext, destination.destinationName, data);		
-			destination.consumer.enqueue(outDataMessage);
+	/**
+	 * 	One message is shared by all destinations, destination name is passed separately.
+	 * Destinations are selected by strategy, broadcast by default.
+	 * 
+	 * OffHeapPayload data reference of caller is transferred, 
+	 * each destination which accepted message gets its own reference.
+	 * 
+	 * @return number of destinations which accepted message
+	 */
+	public int distribute(T data, RequestContext requestContext) {
+		Destination[] destinations = this.destinations;
+		if (destinations.length==0) {
+			OffHeapPayload.releaseIfPayload(data, 1);
+			return 0;
 		}
+
+		DataMessage<T> outDataMessage = new DataMessage<>(requestContext, outputName, data);
+		// retain before enqueue, destination may release payload before distribute returns
+		OffHeapPayload.retainIfPayload(data, destinations.length);
+		int delivered = strategy.distribute(outDataMessage, destinations);
+		OffHeapPayload.releaseIfPayload(data, destinations.length - delivered + 1);
+		return delivered;
+	}
+
+	/**
+	 * 	Distributes primitive value without boxing.
+	 * 
+	 * @param bits	value as long bits of given kind, see {@link Kind}
+	 */
+	public void emitPrimitive(Kind kind, long bits, RequestContext requestContext) {
+		Destination[] destinations = this.destinations;
+		if (destinations.length==0)
+			return;
+
+		strategy.distribute(PrimitiveDataMessage.of(kind, requestContext, outputName, bits), destinations);
 	}
 }
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lite.flow.runtime.kiss.data.DCMessage;
+
+/**
+ * 	Bounded activity input queue which stores message together with its input (port) name.
+ * 
+ * Same message instance can be enqueued to many activities with different input names,
+ * so fan-out does not need message copy per destination.
+ * Slots are preallocated, enqueue and poll do not allocate.
+ * 
+ * Many producers, single consumer (activity run loop).
+ * 
+ * Optional {@link SpillFile} overflow takes messages which do not fit into memory.
+ * When something is spilled, new messages go to spill too, so FIFO order is kept.
+ * Spilled messages are taken directly from overflow when memory part is drained.
+ * Messages are encoded and decoded outside queue lock, so spilling does not block other producers and consumer.
+ * 
+ * Optional {@link MemoryBudget} is charged for messages in memory part (not for spilled).
+ * 
+ * When timestamped, enqueue time (System.nanoTime) is kept per slot and returned in Entry,
+ * messages themselves are shared and do not carry it. Spilled messages lose enqueue time.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class InputQueue {
+
+	/**
+	 * 	Reusable holder for polled entry, owned by consumer thread.
+	 */
+	public static final class Entry {
+		public DCMessage 	message;
+		public String 		inputName;
+		public long 		enqueueNanos;	// 0 when unknown
+
+		public void clear() {
+			message = null;
+			inputName = null;
+			enqueueNanos = 0;
+		}
+	}
+
+	private final DCMessage[] 	messages;
+	private final String[] 		inputNames;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition 	notEmpty = lock.newCondition();
+
+	private int takeIndex;
+	private int putIndex;
+	private int count;
+	private SpillFile overflow;
+	private volatile MemoryBudget budget;
+	private long[] charges;		// charged bytes per slot, only when budget is set
+	private long[] enqueueTimes;	// only when timestamped
+
+	public InputQueue(int capacity) {
+		super();
+		if (capacity<1)
+			throw new IllegalArgumentException("InputQueue capacity should be positive, but is " + capacity);
+		this.messages = new DCMessage[capacity];
+		this.inputNames = new String[capacity];
+	}
+
+	/**
+	 * 	Sets disk overflow, null removes it. Already spilled messages of previous overflow are lost.
+	 */
+	public void setOverflow(SpillFile overflow) {
+		lock.lock();
+		try {
+			this.overflow = overflow;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 	Should be set before queue is used.
+	 */
+	public void setBudget(MemoryBudget budget) {
+		lock.lock();
+		try {
+			if (budget!=null && charges==null)
+				charges = new long[messages.length];
+			this.budget = budget;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 	Should be set before queue is used.
+	 */
+	public void setTimestamped(boolean timestamped) {
+		lock.lock();
+		try {
+			if (timestamped && enqueueTimes==null)
+				enqueueTimes = new long[messages.length];
+			else if (!timestamped)
+				enqueueTimes = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public SpillFile getOverflow() {
+		lock.lock();
+		try {
+			return overflow;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return false when queue is full (and overflow can not take message)
+	 */
+	public boolean offer(DCMessage message, String inputName) {
+		MemoryBudget budget = this.budget;
+		// estimated outside lock
+		long charge = budget==null ? 0 : budget.sizeOfMessage(message);
+		SpillFile overflow;
+		lock.lock();
+		try {
+			overflow = this.overflow;
+			if (!mustSpill(overflow))
+				return putIfSpace(message, inputName, charge);
+		} finally {
+			lock.unlock();
+		}
+
+		byte[] encoded = overflow.encode(message, inputName);
+		if (encoded==null)
+			return false;
+		lock.lock();
+		try {
+			// memory part may be drained meanwhile
+			if (overflow!=this.overflow || !mustSpill(overflow))
+				return putIfSpace(message, inputName, charge);
+			if (!append(overflow, encoded))
+				return false;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 	When something is spilled, new messages go to spill too, so FIFO order is kept.
+	 */
+	private boolean mustSpill(SpillFile overflow) {
+		return overflow!=null && (count==messages.length || overflow.size()>0);
+	}
+
+	private boolean putIfSpace(DCMessage message, String inputName, long charge) {
+		if (count==messages.length)
+			return false;
+		put(message, inputName, charge, enqueueTimes==null ? 0 : System.nanoTime());
+		notEmpty.signal();
+		return true;
+	}
+
+	private void put(DCMessage message, String inputName, long charge, long enqueueNanos) {
+		messages[putIndex] = message;
+		inputNames[putIndex] = inputName;
+		if (enqueueTimes!=null)
+			enqueueTimes[putIndex] = enqueueNanos;
+		MemoryBudget budget = this.budget;
+		if (charge!=0 && budget!=null) {
+			charges[putIndex] = charge;
+			budget.charge(charge);
+		}
+		if (++putIndex==messages.length)
+			putIndex = 0;
+		count++;
+	}
+
+	private static boolean append(SpillFile overflow, byte[] encoded) {
+		try {
+			return overflow.append(encoded);
+		} catch (IOException e) {
+			overflow.rejected.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * 	Waits for next entry at most given time.
+	 * 
+	 * @return false when time elapsed and entry is cleared
+	 */
+	public boolean poll(Entry entry, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		SpillFile overflow;
+		byte[] spilled;
+		lock.lockInterruptibly();
+		try {
+			while (true) {
+				if (count>0)
+					return take(entry);
+				// memory part is drained, spilled messages are next
+				overflow = this.overflow;
+				spilled = overflow==null ? null : overflow.take();
+				if (spilled!=null)
+					break;
+				if (nanos<=0) {
+					entry.clear();
+					return false;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		overflow.decode(spilled, entry);
+		entry.enqueueNanos = 0;
+		try {
+			overflow.deleteReadSegments();
+		} catch (IOException e) {
+			// disk space is freed at close
+		}
+		return true;
+	}
+
+	/**
+	 * 	Takes entry from memory part, called under lock.
+	 */
+	private boolean take(Entry entry) {
+		entry.message = messages[takeIndex];
+		entry.inputName = inputNames[takeIndex];
+		entry.enqueueNanos = enqueueTimes==null ? 0 : enqueueTimes[takeIndex];
+		messages[takeIndex] = null;
+		inputNames[takeIndex] = null;
+		if (charges!=null && charges[takeIndex]!=0) {
+			MemoryBudget budget = this.budget;
+			if (budget!=null)
+				budget.release(charges[takeIndex]);
+			charges[takeIndex] = 0;
+		}
+		if (++takeIndex==messages.length)
+			takeIndex = 0;
+		count--;
+		return true;
+	}
+
+	/**
+	 * @return number of messages in memory and in overflow
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return overflow==null ? count : count + overflow.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return messages.length - count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return true when message can be offered, to memory or overflow
+	 */
+	public boolean hasSpace(int margin) {
+		lock.lock();
+		try {
+			if (overflow!=null && (count==messages.length || overflow.size()>0))
+				return overflow.hasSpace();
+			return messages.length - count > margin;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int capacity() {
+		return messages.length;
+	}
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.span.LatencyHistogram;
+
+/**
+ * 	Queue wait and service time of every activity hop.
+ * Queue wait is time from enqueue to dequeue in activity run loop, 
+ * service time is message processing time in activity thread.
+ * 
+ * Aggregated histograms (microseconds) are kept per edge (activity input),
+ * hops of most recent requests are kept for per request critical path.
+ * 
+ * Set to flow using RunnableFlow.setLatencyTracker, it is propagated to all activities.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LatencyTracker {
+
+	public static final int DEFAULT_TRACKED_REQUESTS = 1000;
+
+	public static final class Edge {
+		public final String name;
+		private final LatencyHistogram queueWait = new LatencyHistogram();
+		private final LatencyHistogram service 	 = new LatencyHistogram();
+
+		Edge(String name) {
+			this.name = name;
+		}
+
+		synchronized void record(long waitNanos, long serviceNanos) {
+			if (waitNanos>=0)
+				queueWait.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+			service.record(TimeUnit.NANOSECONDS.toMicros(serviceNanos));
+		}
+
+		public synchronized long count() {
+			return service.getCount();
+		}
+
+		/**
+		 * @param percentile	0.0 - 100.0
+		 */
+		public synchronized long queueWaitMicros(double percentile) {
+			return queueWait.percentile(percentile);
+		}
+
+		public synchronized long serviceMicros(double percentile) {
+			return service.percentile(percentile);
+		}
+
+		public synchronized double meanQueueWaitMicros() {
+			return queueWait.getMean();
+		}
+
+		public synchronized double meanServiceMicros() {
+			return service.getMean();
+		}
+
+		@Override
+		public String toString() {
+			return "Edge [name=" + name + ", count=" + count() + ", queueWaitP50=" + queueWaitMicros(50) + ", queueWaitP99=" + queueWaitMicros(99) 
+					+ ", serviceP50=" + serviceMicros(50) + ", serviceP99=" + serviceMicros(99) + "]";
+		}
+	}
+
+	/**
+	 * 	One activity hop of request, times are System.nanoTime values.
+	 */
+	public static final class Hop {
+		public final Edge edge;
+		public final long enqueueNanos;		// 0 when unknown
+		public final long dequeueNanos;
+		public final long endNanos;
+
+		Hop(Edge edge, long enqueueNanos, long dequeueNanos, long endNanos) {
+			this.edge = edge;
+			this.enqueueNanos = enqueueNanos;
+			this.dequeueNanos = dequeueNanos;
+			this.endNanos = endNanos;
+		}
+
+		public long queueWaitNanos() {
+			return enqueueNanos==0 ? 0 : dequeueNanos - enqueueNanos;
+		}
+
+		public long serviceNanos() {
+			return endNanos - dequeueNanos;
+		}
+
+		@Override
+		public String toString() {
+			return edge.name + " wait=" + TimeUnit.NANOSECONDS.toMicros(queueWaitNanos()) 
+					+ "us service=" + TimeUnit.NANOSECONDS.toMicros(serviceNanos()) + "us";
+		}
+	}
+
+	public final int maxTrackedRequests;
+	private final ConcurrentHashMap<String, Edge> edges = new ConcurrentHashMap<>();
+	private final Map<UniqueId, List<Hop>> requests;
+
+	public LatencyTracker() {
+		this(DEFAULT_TRACKED_REQUESTS);
+	}
+
+	/**
+	 * @param maxTrackedRequests	hops of how many most recent requests are kept, 0 disables per request tracking
+	 */
+	public LatencyTracker(int maxTrackedRequests) {
+		super();
+		if (maxTrackedRequests<0)
+			throw new IllegalArgumentException("LatencyTracker maxTrackedRequests should not be negative, but is " + maxTrackedRequests);
+		this.maxTrackedRequests = maxTrackedRequests;
+		this.requests = new LinkedHashMap<UniqueId, List<Hop>>(70, 0.7f) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<UniqueId, List<Hop>> eldest) {
+				return size()>LatencyTracker.this.maxTrackedRequests;
+			}
+		};
+	}
+
+	/**
+	 * 	Edges are created once per name, callers should keep returned instance.
+	 */
+	public Edge edge(String activityName, String inputName) {
+		return edges.computeIfAbsent(activityName + ":" + inputName, Edge::new);
+	}
+
+	/**
+	 * @param enqueueNanos	0 when unknown, queue wait is not recorded
+	 */
+	public void record(Edge edge, RequestContext requestContext, long enqueueNanos, long dequeueNanos, long endNanos) {
+		edge.record(enqueueNanos==0 ? -1 : dequeueNanos - enqueueNanos, endNanos - dequeueNanos);
+
+		UniqueId requestId = requestContext==null ? null : requestContext.getRequestId();
+		if (maxTrackedRequests==0 || requestId==null)
+			return;
+		Hop hop = new Hop(edge, enqueueNanos, dequeueNanos, endNanos);
+		synchronized (requests) {
+			List<Hop> hops = requests.get(requestId);
+			if (hops==null) {
+				hops = new ArrayList<>();
+				requests.put(requestId, hops);
+			}
+			hops.add(hop);
+		}
+	}
+
+	/**
+	 * @return recorded hops of request, empty when request is not tracked (anymore)
+	 */
+	public List<Hop> hops(UniqueId requestId) {
+		synchronized (requests) {
+			List<Hop> hops = requests.get(requestId);
+			return hops==null ? Collections.emptyList() : new ArrayList<>(hops);
+		}
+	}
+
+	/**
+	 * 	Critical path is walked back from hop which ended last: 
+	 * predecessor of hop is hop which ended last before hop was enqueued,
+	 * that is the hop which emitted message (or last of joined messages).
+	 * 
+	 * @return critical path hops of request, in execution order
+	 */
+	public List<Hop> criticalPath(UniqueId requestId) {
+		List<Hop> hops = hops(requestId);
+		List<Hop> path = new ArrayList<>();
+		Hop current = null;
+		for (Hop hop : hops)
+			if (current==null || hop.endNanos>current.endNanos)
+				current = hop;
+		while (current!=null) {
+			path.add(current);
+			long before = current.enqueueNanos==0 ? current.dequeueNanos : current.enqueueNanos;
+			Hop predecessor = null;
+			for (Hop hop : hops)
+				if (hop.endNanos<=before && (predecessor==null || hop.endNanos>predecessor.endNanos))
+					predecessor = hop;
+			current = predecessor;
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * @return critical path of request with total queue wait and service time
+	 */
+	public String breakdown(UniqueId requestId) {
+		List<Hop> path = criticalPath(requestId);
+		long wait = 0;
+		long service = 0;
+		StringBuilder sb = new StringBuilder();
+		for (Hop hop : path) {
+			wait += hop.queueWaitNanos();
+			service += hop.serviceNanos();
+			sb.append("  ").append(hop).append(System.lineSeparator());
+		}
+		return "request " + requestId + " queueWait=" + TimeUnit.NANOSECONDS.toMicros(wait) + "us service=" 
+				+ TimeUnit.NANOSECONDS.toMicros(service) + "us hops=" + path.size() + System.lineSeparator() + sb;
+	}
+
+	/**
+	 * @return edges sorted by mean queue wait, longest first
+	 */
+	public List<Edge> edges() {
+		List<Edge> result = new ArrayList<>(edges.values());
+		result.sort((edge1, edge2) -> Double.compare(edge2.meanQueueWaitMicros(), edge1.meanQueueWaitMicros()));
+		return result;
+	}
+
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-40s %10s %12s %12s %12s %12s%n", "edge", "count", "waitP50us", "waitP99us", "serviceP50us", "serviceP99us"));
+		for (Edge edge : edges())
+			sb.append(String.format("%-40s %10d %12d %12d %12d %12d%n", edge.name, edge.count()
+					, edge.queueWaitMicros(50), edge.queueWaitMicros(99), edge.serviceMicros(50), edge.serviceMicros(99)));
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyTracker [maxTrackedRequests=" + maxTrackedRequests + ", edges=" + edges.size() + "]";
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+
+/**
+ * 	Bounded LRU cache of entry point results, keyed by argument values.
+ * Entries older than ttlMillis are treated as misses and removed.
+ * 
+ * Arguments and results which are {@link OffHeapPayload} are not cached,
+ * cache does not take part in payload reference counting.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class MemoCache {
+
+	/**
+	 * 	Returned by get when there is no valid cached result (result itself may be null).
+	 */
+	public static final Object MISS = new Object();
+
+	/**
+	 * 	Copy of argument values, compared by value.
+	 */
+	public static final class Key {
+		private final Object[] 	args;
+		private final int 		hash;
+
+		Key(Object[] args) {
+			this.args = args;
+			this.hash = Arrays.deepHashCode(args);
+		}
+
+		/**
+		 * @param args	argument values, copied
+		 * @return key or null when arguments contain OffHeapPayload
+		 */
+		public static Key of(Object[] args) {
+			for (Object arg : args)
+				if (arg instanceof OffHeapPayload)
+					return null;
+			return new Key(args.clone());
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash==other.hash && Arrays.deepEquals(args, other.args);
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.deepToString(args);
+		}
+	}
+
+	static final class Cached {
+		final Object 	result;
+		final long 		createTime;
+
+		Cached(Object result, long createTime) {
+			this.result = result;
+			this.createTime = createTime;
+		}
+	}
+
+	public final int 	maxSize;
+	public final long 	ttlMillis;
+
+	private final AtomicLong hits 		= new AtomicLong();
+	private final AtomicLong misses 	= new AtomicLong();
+	private final AtomicLong evictions 	= new AtomicLong();
+	private final AtomicLong expired 	= new AtomicLong();
+
+	private final Map<Key, Cached> results;
+
+	public MemoCache(int maxSize, long ttlMillis) {
+		super();
+		if (maxSize<1)
+			throw new IllegalArgumentException("MemoCache maxSize should be positive, but is " + maxSize);
+		if (ttlMillis<0)
+			throw new IllegalArgumentException("MemoCache ttlMillis should not be negative, but is " + ttlMillis);
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.results = new LinkedHashMap<Key, Cached>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+				if (size()>MemoCache.this.maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public MemoCache(Memoize memoize) {
+		this(memoize.maxSize(), memoize.ttlMillis());
+	}
+
+	/**
+	 * @param args	argument values, copied
+	 * @return key or null when arguments can not be cached
+	 */
+	public Key keyOf(Object[] args) {
+		return Key.of(args);
+	}
+
+	/**
+	 * @return cached result or {@link #MISS}
+	 */
+	public Object get(Key key) {
+		synchronized (results) {
+			Cached cached = results.get(key);
+			if (cached!=null && ttlMillis>0 && cached.createTime+ttlMillis<System.currentTimeMillis()) {
+				results.remove(key);
+				expired.incrementAndGet();
+				cached = null;
+			}
+			if (cached==null) {
+				misses.incrementAndGet();
+				return MISS;
+			}
+			hits.incrementAndGet();
+			return cached.result;
+		}
+	}
+
+	public void put(Key key, Object result) {
+		if (result instanceof OffHeapPayload)
+			return;
+		synchronized (results) {
+			results.put(key, new Cached(result, System.currentTimeMillis()));
+		}
+	}
+
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (results) {
+			results.clear();
+		}
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long evictions() {
+		return evictions.get();
+	}
+
+	public long expired() {
+		return expired.get();
+	}
+
+	@Override
+	public String toString() {
+		return "MemoCache [maxSize=" + maxSize + ", ttlMillis=" + ttlMillis + ", size=" + size() + ", hits=" + hits 
+				+ ", misses=" + misses + ", evictions=" + evictions + ", expired=" + expired + "]";
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 	Marks component entry point which is pure function of its arguments.
+ * Results are cached per component instance (see {@link MemoCache}), 
+ * on cache hit result is emitted without invoking component.
+ * 
+ * Used only for components without explicit Output port, 
+ * where returned value is the only output.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Memoize {
+
+	/**
+	 * 	Max number of cached results, least recently used are evicted.
+	 */
+	int maxSize() default 1000;
+
+	/**
+	 * 	Time to live of cached result in milliseconds, 0 means no expiry.
+	 */
+	long ttlMillis() default 0;
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
+
+/**
+ * 	Flow wide accounting of memory held by in-flight data: queued messages and pending Correlator rows.
+ * Activities charge estimated sizes when they take data and release them when data leaves.
+ * 
+ * Budget does not block inside flow, charges inside flow always succeed.
+ * When used bytes exceed limit, configured responses are applied:
+ * <ul>
+ * <li>REJECT_NEW_REQUESTS - RunnableFlow.enqueue rejects new messages</li>
+ * <li>EVICT_OLDEST_ROWS - Correlator removes least recently used partial rows</li>
+ * </ul>
+ * Message shared by many destinations is charged by each queue, so estimation is upper bound.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class MemoryBudget {
+
+	public enum Response {
+		REJECT_NEW_REQUESTS,
+		EVICT_OLDEST_ROWS
+	}
+
+	/** approximate size of message and queue slot, without data */
+	public static final long MESSAGE_OVERHEAD 	= 48;
+	/** approximate size of empty Correlator row */
+	public static final long ROW_OVERHEAD 		= 96;
+
+	public final long 			limitBytes;
+	public final Set<Response> 	responses;
+	private final SizeEstimator estimator;
+
+	private final AtomicLong used 				= new AtomicLong();
+	private final AtomicLong peak 				= new AtomicLong();
+	private final AtomicLong rejectedRequests 	= new AtomicLong();
+	private final AtomicLong evictedRows 		= new AtomicLong();
+
+	public MemoryBudget(long limitBytes) {
+		this(limitBytes, SizeEstimator.DEFAULT, EnumSet.allOf(Response.class));
+	}
+
+	public MemoryBudget(long limitBytes, SizeEstimator estimator, Set<Response> responses) {
+		super();
+		requireNonNull(estimator, "MemoryBudget estimator should not be null");
+		requireNonNull(responses, "MemoryBudget responses should not be null");
+		if (limitBytes<=0)
+			throw new IllegalArgumentException("MemoryBudget limitBytes should be positive, but is " + limitBytes);
+
+		this.limitBytes = limitBytes;
+		this.estimator = estimator;
+		this.responses = responses.isEmpty() ? EnumSet.noneOf(Response.class) : EnumSet.copyOf(responses);
+	}
+
+	public long sizeOf(Object data) {
+		return estimator.sizeOf(data);
+	}
+
+	/**
+	 * @return estimated size of queued message including overhead
+	 */
+	public long sizeOfMessage(DCMessage message) {
+		if (message instanceof DataMessage)
+			return MESSAGE_OVERHEAD + estimator.sizeOf(((DataMessage<?>) message).data);
+		if (message instanceof PrimitiveDataMessage)
+			return MESSAGE_OVERHEAD + 8;
+		return MESSAGE_OVERHEAD;
+	}
+
+	public void charge(long bytes) {
+		long current = used.addAndGet(bytes);
+		long max;
+		while (current > (max = peak.get()))
+			if (peak.compareAndSet(max, current))
+				break;
+	}
+
+	public void release(long bytes) {
+		used.addAndGet(-bytes);
+	}
+
+	public boolean isExceeded() {
+		return used.get() > limitBytes;
+	}
+
+	/**
+	 * @return true when new request should be rejected, rejection is counted
+	 */
+	public boolean rejectNewRequest() {
+		if (responses.contains(Response.REJECT_NEW_REQUESTS) && isExceeded()) {
+			rejectedRequests.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	public boolean shouldEvictRows() {
+		return responses.contains(Response.EVICT_OLDEST_ROWS) && isExceeded();
+	}
+
+	void rowEvicted() {
+		evictedRows.incrementAndGet();
+	}
+
+	public long usedBytes() {
+		return used.get();
+	}
+
+	public long peakBytes() {
+		return peak.get();
+	}
+
+	public long rejectedRequests() {
+		return rejectedRequests.get();
+	}
+
+	public long evictedRows() {
+		return evictedRows.get();
+	}
+
+	@Override
+	public String toString() {
+		return "MemoryBudget [limitBytes=" + limitBytes + ", usedBytes=" + used + ", peakBytes=" + peak 
+				+ ", rejectedRequests=" + rejectedRequests + ", evictedRows=" + evictedRows + ", responses=" + responses + "]";
+	}
+}
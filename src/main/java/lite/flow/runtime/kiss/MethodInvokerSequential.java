@@ -19,9 +19,14 @@ import static java.util.Objects.requireNonNull;
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
@@ -29,18 +34,31 @@ import lite.flow.api.activity.RequestContext;
 import lite.flow.api.flow.define.Component;
 import lite.flow.util.UniqueId;
 import lite.flow.runtime.kiss.DistributorOutput.Destination;
+import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.DeadlineAware;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
 import lite.log.api.ExecutionContext;
 import lite.log.api.Log;
 import lite.log.api.LogFactory;
 import lite.log.api.event.EndEvent;
 import lite.log.api.event.StartEvent;
+import lite.log.jfr.FlowEvents;
 
 /**
  * 	Executed method may be not Thread Safe.
  * MethodInvokerSequential calls component transform methods only after previous method calls are finished.
  * This is simple implementation and component transform methods should not run very long time. 
  * 
+ * Blocking components are invoked on BlockingExecutor instead, at most maxConcurrency calls at a time,
+ * so this activity thread keeps receiving messages while component waits for I/O.
+ * Invocations over maxConcurrency wait in pending queue, activity thread waits only when 
+ * inputQueueLength invocations are pending.
+ * 
+ * Results of {@link Memoize} entry points are cached per instance, 
+ * on cache hit result is emitted without invocation.
+ * Concurrent invocations of {@link Coalesce} entry points with equal arguments are coalesced (see SingleFlight).
+ * 
  * @author ToivoAdams
  *
  */
@@ -52,8 +70,15 @@ public class MethodInvokerSequential extends SequentialActivity {
 	private final Object componentInstance;
 	private final boolean withoutExplicitOutputPort;
 	private final Map<String,DistributorOutput<?>> actvityOutputs = new HashMap<>(); 
-	
-	private final RequestContextCarrier rcc = new RequestContextCarrier();
+	private volatile BlockingExecutor blockingExecutor;
+	private volatile Semaphore concurrency;	// invocations running on blocking executor
+	private volatile Semaphore backlog;		// invocations accepted and not finished yet
+	private final Queue<Runnable> pendingCalls = new ConcurrentLinkedQueue<>();
+	// not modified after construction
+	private final Map<Method,MemoCache> memoCaches = new HashMap<>();
+	private final Map<Method,SingleFlight> singleFlights = new HashMap<>();
+	private final Map<Method,ActivityProfiler.Stats> entryPointStats = new ConcurrentHashMap<>();
+	private volatile ActivityProfiler.Stats loggingStats;
 	
 	public MethodInvokerSequential(int inputQueueLength, FlowExecutionContext executionContext, LogFactory logFactory
 			, ExecutorService executorService, Component component, boolean withoutExplicitOutputPort) throws ReflectiveOperationException {
@@ -71,6 +96,15 @@ public class MethodInvokerSequential extends SequentialActivity {
 	//		.newInstance();
 	//		this.componentInstance = componentClazz.newInstance();
 			this.componentInstance = ComponentUtil.newInstance(component, executionContext);
+			// with explicit Output ports returned value is not whole output, such methods are not memoized
+			if (withoutExplicitOutputPort)
+				for (Method method : componentClazz.getMethods()) {
+					Memoize memoize = method.getAnnotation(Memoize.class);
+					if (memoize!=null)
+						memoCaches.put(method, new MemoCache(memoize));
+					if (method.isAnnotationPresent(Coalesce.class))
+						singleFlights.put(method, new SingleFlight());
+				}
 
 		} catch (InstantiationException | IllegalAccessException e) {
 			EndEvent endEvent = new EndEvent(Level.FINE, "create component instance failed", null, executionContext, logFactory.newCid());
@@ -85,38 +119,267 @@ public class MethodInvokerSequential extends SequentialActivity {
 	 */
 	@Log
 	@Override
-	public Object processDataMessage(DataMessage<?> dataMessage) {
+	public Object processDataMessage(DataMessage<?> dataMessage, String inputName) {
 		requireNonNull(dataMessage, "MethodInvokerSequential.processMessage dataMessage should not be null");
 		
 		if (dataMessage.data instanceof CorrelatedEntryPointArguments) {
 			CorrelatedEntryPointArguments collectedMethodParametersRow = (CorrelatedEntryPointArguments) dataMessage.data;
+			Method method = collectedMethodParametersRow.entryPoint.method;
+			MemoCache memoCache = memoCaches.isEmpty() ? null : memoCaches.get(method);
+			SingleFlight singleFlight = singleFlights.isEmpty() ? null : singleFlights.get(method);
+			MemoCache.Key argsKey = memoCache==null && singleFlight==null ? null : MemoCache.Key.of(collectedMethodParametersRow.argValues());
+			if (argsKey!=null) {
+				Object cached = memoCache==null ? MemoCache.MISS : memoCache.get(argsKey);
+				if (cached!=MemoCache.MISS) {
+					emitResult(collectedMethodParametersRow, cached, dataMessage.context);
+					return finish(collectedMethodParametersRow);
+				}
+				// joined request gets result when leader invocation completes
+				if (singleFlight!=null && singleFlight.join(argsKey, dataMessage.context))
+					return finish(collectedMethodParametersRow);
+			}
+
 			nrOfActiveCalls.incrementAndGet();
-			Invoker invoker = new Invoker(collectedMethodParametersRow, dataMessage.context, executionContext);
+			Invoker invoker = new Invoker(collectedMethodParametersRow, dataMessage.context, executionContext
+					, argsKey==null ? null : memoCache, argsKey==null ? null : singleFlight, argsKey);
+			BlockingExecutor blockingExecutor = this.blockingExecutor;
+			if (blockingExecutor!=null) {
+				UniqueId dcid = collectedMethodParametersRow.dcid;
+				Semaphore backlog = this.backlog;
+				try {
+					// backpressure, like full input queue
+					backlog.acquire();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				pendingCalls.add(() -> {
+					try {
+						invoker.call();
+					} finally {
+						finish(collectedMethodParametersRow);
+						backlog.release();
+					}
+				});
+				dispatch(blockingExecutor);
+				return dcid;
+			}
+
 			// Note!!! This will block!!!
 			invoker.call();
-			return collectedMethodParametersRow;
+			return finish(collectedMethodParametersRow);
 		} else
 			throw new IllegalArgumentException("MethodInvokerSequential.processMessage dataMessage.data should be CorrelatedEntryPointArguments, but is " + dataMessage.data);
 	}
 
+	/**
+	 * 	Starts pending invocations while concurrency permits are available.
+	 * Called after invocation is queued and after invocation ends, so no invocation is left waiting.
+	 */
+	private void dispatch(BlockingExecutor blockingExecutor) {
+		Semaphore concurrency = this.concurrency;
+		while (!pendingCalls.isEmpty() && concurrency.tryAcquire()) {
+			Runnable call = pendingCalls.poll();
+			if (call==null) {
+				// taken by other thread
+				concurrency.release();
+				continue;
+			}
+			blockingExecutor.execute(() -> {
+				try {
+					call.run();
+				} finally {
+					concurrency.release();
+					dispatch(blockingExecutor);
+				}
+			});
+		}
+	}
+
+	/**
+	 * 	Releases row after invocation.
+	 * 
+	 * @return row, or its dcid when row is pooled
+	 */
+	private Object finish(CorrelatedEntryPointArguments collectedMethodParametersRow) {
+		// component which keeps or emits payload argument has retained it
+		collectedMethodParametersRow.releasePayloads();
+		if (collectedMethodParametersRow.isPooled()) {
+			// pooled row must not be referenced after release
+			UniqueId dcid = collectedMethodParametersRow.dcid;
+			collectedMethodParametersRow.release();
+			return dcid;
+		}
+		return collectedMethodParametersRow;
+	}
+
+	@Override
+	protected void discardMessage(DCMessage dcmsg, String inputName) {
+		if (dcmsg instanceof DataMessage && ((DataMessage<?>) dcmsg).data instanceof CorrelatedEntryPointArguments)
+			finish((CorrelatedEntryPointArguments) ((DataMessage<?>) dcmsg).data);
+		else
+			super.discardMessage(dcmsg, inputName);
+	}
+
+	/**
+	 * 	Emits cached result like component invocation would.
+	 */
+	private void emitResult(CorrelatedEntryPointArguments collectedMethodParametersRow, Object result, RequestContext requestContext) {
+		PrimitiveInvoker primitiveInvoker = collectedMethodParametersRow.primitiveInvoker;
+		if (primitiveInvoker==null)
+			outputOf(collectedMethodParametersRow).emit(result, requestContext);
+		else if (primitiveInvoker.returnKind!=null)
+			outputOf(collectedMethodParametersRow).emitPrimitive(primitiveInvoker.returnKind, primitiveInvoker.returnKind.toBits(result), requestContext);
+	}
+
+	/**
+	 * @return result cache of memoized entry point, null when method is not memoized
+	 */
+	public MemoCache getMemoCache(Method method) {
+		return memoCaches.get(method);
+	}
+
+	/**
+	 * @return in-flight tracking of coalesced entry point, null when method is not coalesced
+	 */
+	public SingleFlight getSingleFlight(Method method) {
+		return singleFlights.get(method);
+	}
+
+	/**
+	 * 	Besides message processing, component code of every entry point and 
+	 * invocation logging are measured separately.
+	 */
+	@Override
+	public void setProfiler(ActivityProfiler profiler) {
+		entryPointStats.clear();
+		this.loggingStats = profiler==null ? null : profiler.stats(super.profileName() + "/logging");
+		super.setProfiler(profiler);
+	}
+
+	@Override
+	protected String profileName() {
+		return super.profileName() + "/invoke";
+	}
+
+	private ActivityProfiler.Stats entryPointStats(ActivityProfiler profiler, Method method) {
+		ActivityProfiler.Stats stats = entryPointStats.get(method);
+		if (stats==null)
+			stats = entryPointStats.computeIfAbsent(method, m -> profiler.stats(super.profileName() + "." + m.getName()));
+		return stats;
+	}
+
+	/**
+	 * 	Component invocations are run on given executor.
+	 * Should be set before activity receives messages.
+	 * 
+	 * @param maxConcurrency	concurrent invocations of component instance, more than 1 only for thread safe components,
+	 * 							at most inputQueueLength more invocations wait for permit
+	 */
+	public void setBlockingExecutor(BlockingExecutor blockingExecutor, int maxConcurrency) {
+		if (maxConcurrency<1)
+			throw new IllegalArgumentException("MethodInvokerSequential maxConcurrency should be positive, but is " + maxConcurrency);
+		this.concurrency = new Semaphore(maxConcurrency);
+		this.backlog = new Semaphore(maxConcurrency + inputQueueLength);
+		this.blockingExecutor = blockingExecutor;
+	}
+
 	private class Invoker implements Callable<Object> {
 
 		private final CorrelatedEntryPointArguments collectedMethodParametersRow;
-		private final RequestContext   requestContext;
+		private RequestContext   	   requestContext;	// joined request, when leader was skipped
 		private final ExecutionContext executionContext;
+		private final MemoCache 	   memoCache;		// null when result is not cached
+		private final SingleFlight 	   singleFlight;	// null when invocation is not coalesced
+		private final MemoCache.Key    argsKey;
+		private boolean flightCompleted;
 		
-		public Invoker(CorrelatedEntryPointArguments collectedMethodParametersRow, RequestContext requestContext, ExecutionContext executionContext) {
+		public Invoker(CorrelatedEntryPointArguments collectedMethodParametersRow, RequestContext requestContext, ExecutionContext executionContext
+				, MemoCache memoCache, SingleFlight singleFlight, MemoCache.Key argsKey) {
 			super();
 			this.collectedMethodParametersRow = collectedMethodParametersRow;
 			this.requestContext = requestContext;
 			this.executionContext = executionContext;
+			this.memoCache = memoCache;
+			this.singleFlight = singleFlight;
+			this.argsKey = argsKey;
 		}
 
+		/**
+		 * 	When leader is cancelled or expired, first live joined request leads instead.
+		 * Coalesced flight is completed on every exit, joined requests get nothing when invocation fails.
+		 */
 		@Override
 		public Object call() {
-			UniqueId cid = logFactory.newCid();
+			try {
+				while (skipped(requestContext))
+					if (!promoteWaiter())
+						return null;
+				return invoke();
+			} finally {
+				if (singleFlight!=null && !flightCompleted)
+					completeFlight();
+				nrOfActiveCalls.decrementAndGet();
+			}
+		}
+
+		/**
+		 * 	Request may be cancelled or its deadline may pass while waiting for blocking executor.
+		 */
+		private boolean skipped(RequestContext requestContext) {
+			Cancellations cancellations = MethodInvokerSequential.this.cancellations;
+			if (cancellations!=null && cancellations.isCancelled(requestContext)) {
+				cancellations.messageSkipped();
+				return true;
+			}
+			if (DeadlineAware.isExpired(requestContext, System.currentTimeMillis())) {
+				expirations.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return false when there is no joined request to lead and flight is completed
+		 */
+		private boolean promoteWaiter() {
+			if (singleFlight==null)
+				return false;
+			RequestContext waiter = singleFlight.promote(argsKey);
+			if (waiter==null) {
+				flightCompleted = true;
+				return false;
+			}
+			requestContext = waiter;
+			return true;
+		}
+
+		private List<RequestContext> completeFlight() {
+			flightCompleted = true;
+			return singleFlight.complete(argsKey);
+		}
+
+		private Object invoke() {
 			Method componentMethod = collectedMethodParametersRow.entryPoint.method;
-			StartEvent startEvent = new StartEvent(Level.INFO, "", requestContext, executionContext, cid, collectedMethodParametersRow.entryPoint.inputNames, collectedMethodParametersRow.inputArgs);
+			ActivityProfiler profiler = MethodInvokerSequential.this.profiler;
+			ActivityProfiler.Stats stats = profiler==null ? null : entryPointStats(profiler, componentMethod);
+			ActivityProfiler.Stats loggingStats = MethodInvokerSequential.this.loggingStats;
+			boolean profiled = stats!=null && loggingStats!=null && profiler.count(stats);
+			// every invocation is logged, like entry point it is counted always and measured only when sampled
+			if (stats!=null && loggingStats!=null)
+				loggingStats.count();
+			// thread CPU time and allocated bytes at start, before and after invocation
+			long startCpu = 0, startAllocated = 0, beforeCpu = 0, beforeAllocated = 0, afterCpu = 0, afterAllocated = 0;
+			if (profiled) {
+				startCpu = profiler.cpuTime();
+				startAllocated = profiler.allocatedBytes();
+			}
+
+			UniqueId cid = logFactory.newCid();
+			PrimitiveInvoker primitiveInvoker = collectedMethodParametersRow.primitiveInvoker;
+			// primitive arguments and result are boxed only for logging
+			boolean loggable = primitiveInvoker==null || logFactory.logger().isLoggable(Level.INFO);
+			StartEvent startEvent = new StartEvent(Level.INFO, "", requestContext, executionContext, cid, collectedMethodParametersRow.entryPoint.inputNames
+					, loggable ? collectedMethodParametersRow.argValues() : null);
 			startEvent.setSourceClassName(componentClazz.getName());
 			startEvent.setSourceMethodName(componentMethod.getName());
 
@@ -124,38 +387,96 @@ public class MethodInvokerSequential extends SequentialActivity {
 	//				"invoke component method " + componentMethod.getName() + " , using: " + collectedMethodParametersRow, requestContext, executionContext, cid);
 			logFactory.logger().log(startEvent);
 			Object result = null;
+			boolean succeeded = false;
+			boolean payloadHeld = false;	// reference of payload result kept for joined requests
+			List<RequestContext> waiters = null;
+			RequestContext previous = RequestContextCarrier.bind(requestContext);
+			// component can check Cancellations.isCurrentRequestCancelled
+			Cancellations cancellations = MethodInvokerSequential.this.cancellations;
+			Cancellations previousCancellations = cancellations==null ? null : Cancellations.bind(cancellations);
+			Object invocation = FlowEvents.beginInvocation();
+			if (profiled) {
+				beforeCpu = profiler.cpuTime();
+				beforeAllocated = profiler.allocatedBytes();
+			}
 			try {
-		    	rcc.setRequestContext(requestContext);
-				result = componentMethod.invoke(componentInstance, collectedMethodParametersRow.inputArgs);
-				if (withoutExplicitOutputPort) {
-					// Component is without explicit Output port!
-					// We must send output value here.
-					String outputName = collectedMethodParametersRow.entryPoint.outputName;
-					if (actvityOutputs.containsKey(outputName)==false)
-						throw new IllegalArgumentException("Activity " + componentClazz.getName() + " output " + outputName + " not created");
-					
-					DistributorOutput<Object> output = (DistributorOutput<Object>) actvityOutputs.get(outputName);
-					output.emit(result, requestContext);
-					
+				if (primitiveInvoker!=null) {
+					long resultBits = primitiveInvoker.invoke(componentInstance, collectedMethodParametersRow.primitiveArgs);
+					if (primitiveInvoker.returnKind!=null) {
+						if (withoutExplicitOutputPort)
+							outputOf(collectedMethodParametersRow).emitPrimitive(primitiveInvoker.returnKind, resultBits, requestContext);
+						if (loggable || memoCache!=null || singleFlight!=null)
+							result = primitiveInvoker.returnKind.box(resultBits);
+					}
+				} else {
+					result = componentMethod.invoke(componentInstance, collectedMethodParametersRow.inputArgs);
+					// leader emit transfers component reference, payload may be freed before joined requests get it
+					if (singleFlight!=null && result instanceof OffHeapPayload) {
+						((OffHeapPayload) result).retain();
+						payloadHeld = true;
+					}
+					if (withoutExplicitOutputPort) {
+						// Component is without explicit Output port!
+						// We must send output value here.
+						outputOf(collectedMethodParametersRow).emit(result, requestContext);
+					}
 				}
+				if (memoCache!=null)
+					memoCache.put(argsKey, result);
+				succeeded = true;
 			} catch (Exception e) {
 				EndEvent endEvent = new EndEvent(Level.WARNING, "", startEvent);
 				endEvent.setSourceClassName(componentClazz.getName());
 				endEvent.setSourceMethodName(componentMethod.getName());
 				endEvent.setThrown(e);
 				logFactory.logger().log(endEvent);
+			} finally {
+				if (profiled) {
+					afterCpu = profiler.cpuTime();
+					afterAllocated = profiler.allocatedBytes();
+					stats.add(afterCpu - beforeCpu, afterAllocated - beforeAllocated);
+				}
+				RequestContextCarrier.restore(previous);
+				if (cancellations!=null)
+					Cancellations.restore(previousCancellations);
+				FlowEvents.endInvocation(invocation, executionContext, componentClazz.getName(), componentMethod.getName(), requestContext, !succeeded);
+				if (singleFlight!=null)
+					waiters = completeFlight();
+			}
+			// joined requests get nothing when invocation failed, like leader
+			try {
+				if (succeeded && waiters!=null)
+					for (RequestContext waiter : waiters) {
+						// each emit transfers one reference
+						OffHeapPayload.retainIfPayload(result, 1);
+						emitResult(collectedMethodParametersRow, result, waiter);
+					}
+			} finally {
+				if (payloadHeld)
+					((OffHeapPayload) result).release();
 			}
 			EndEvent endEvent = new EndEvent(Level.INFO, "", startEvent, "result", result);
 			endEvent.setSourceClassName(componentClazz.getName());
 			endEvent.setSourceMethodName(componentMethod.getName());
 	//		EndEvent endEvent = new EndEvent(Level.INFO, "invoke component  method " + componentMethod.getName() + " result: " + result, startEvent);
 			logFactory.logger().log(endEvent);
-
-			nrOfActiveCalls.decrementAndGet();
+			if (profiled)
+				// logging before and after invocation
+				loggingStats.add(profiler.cpuTime() - afterCpu + beforeCpu - startCpu
+						, profiler.allocatedBytes() - afterAllocated + beforeAllocated - startAllocated);
 			return null;
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private DistributorOutput<Object> outputOf(CorrelatedEntryPointArguments collectedMethodParametersRow) {
+		String outputName = collectedMethodParametersRow.entryPoint.outputName;
+		if (actvityOutputs.containsKey(outputName)==false)
+			throw new IllegalArgumentException("Activity " + componentClazz.getName() + " output " + outputName + " not created");
+		
+		return (DistributorOutput<Object>) actvityOutputs.get(outputName);
+	}
+
 	/** 
 	 * 	MethodInvokerInterleaved does not have its own destinations.
 	 * Instead it has component outputs as its own outputs.
@@ -180,11 +501,16 @@ public class MethodInvokerSequential extends SequentialActivity {
 		}
 	}
 	
+	@Override
+	public void setDistribution(String outputName, DistributionStrategy strategy) {
+		getOrPut(outputName).setStrategy(strategy);
+	}
+
     public final DistributorOutput<?> getOrPut(String outputName) {
     	if (actvityOutputs.containsKey(outputName))
     		return actvityOutputs.get(outputName);
 
-    	DistributorOutput<?> distributorOutput = new DistributorOutput<>(outputName, rcc);
+    	DistributorOutput<?> distributorOutput = new DistributorOutput<>(outputName);
     	actvityOutputs.put(outputName, distributorOutput);
     	return distributorOutput;
     }
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 	Bounded pool of reusable objects.
+ * Pooling is opt-in, see ENABLED, because pooled objects must be released explicitly
+ * and must not be referenced after release.
+ * 
+ * Objects are usually acquired by one activity thread and released by next activity thread,
+ * so pool is synchronized. Pool does not allocate on acquire or release in steady state.
+ * 
+ * When LEAK_DETECTION is on (test mode) acquire site of every outstanding object is recorded,
+ * double release is rejected and {@link #checkLeaks()} reports objects which were never released.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class ObjectPool<T> {
+
+	public static boolean ENABLED 			= Boolean.getBoolean("lite.flow.pooling");
+	public static boolean LEAK_DETECTION 	= Boolean.getBoolean("lite.flow.pooling.leakDetection");
+	public static int DEFAULT_CAPACITY 		= 256;
+
+	public final String name;
+	private final Function<ObjectPool<T>, T> factory;
+	private final Object[] free;
+	private int nrOfFree;
+	private int nrOfOutstanding;
+	private long nrOfCreated;
+	private final Map<T, Throwable> acquireSites;
+
+	/**
+	 * @param factory		creates new object, gets this pool, so object can release itself
+	 */
+	public ObjectPool(String name, Function<ObjectPool<T>, T> factory) {
+		this(name, factory, DEFAULT_CAPACITY, LEAK_DETECTION);
+	}
+
+	/**
+	 * @param capacity		maximum number of free objects kept, extra released objects are left to GC
+	 * @param leakDetection	record acquire sites, costly, use in tests only
+	 */
+	public ObjectPool(String name, Function<ObjectPool<T>, T> factory, int capacity, boolean leakDetection) {
+		super();
+		requireNonNull(factory, "ObjectPool factory should not be null");
+		if (capacity<0)
+			throw new IllegalArgumentException("ObjectPool capacity should not be negative, but is " + capacity);
+
+		this.name = name;
+		this.factory = factory;
+		this.free = new Object[capacity];
+		this.acquireSites = leakDetection ? new IdentityHashMap<>() : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized T acquire() {
+		T obj;
+		if (nrOfFree>0) {
+			obj = (T) free[--nrOfFree];
+			free[nrOfFree] = null;
+		} else {
+			obj = factory.apply(this);
+			nrOfCreated++;
+		}
+		nrOfOutstanding++;
+		if (acquireSites!=null)
+			acquireSites.put(obj, new Throwable("acquired from pool " + name));
+		return obj;
+	}
+
+	/**
+	 * 	Object should be already cleared by caller.
+	 */
+	public synchronized void release(T obj) {
+		requireNonNull(obj, "ObjectPool.release obj should not be null");
+		if (acquireSites!=null && acquireSites.remove(obj)==null)
+			throw new IllegalStateException("ObjectPool " + name + " release of object which is not acquired (double release?): " + obj);
+
+		nrOfOutstanding--;
+		if (nrOfFree<free.length)
+			free[nrOfFree++] = obj;
+	}
+
+	public synchronized int outstanding() {
+		return nrOfOutstanding;
+	}
+
+	public synchronized long created() {
+		return nrOfCreated;
+	}
+
+	/**
+	 * @return acquire sites of objects which are not released yet, empty when leak detection is off
+	 */
+	public synchronized List<Throwable> leaks() {
+		if (acquireSites==null)
+			return new ArrayList<>();
+		return new ArrayList<>(acquireSites.values());
+	}
+
+	/**
+	 * 	Throws IllegalStateException when some acquired objects are not released.
+	 * First leaked object acquire site is cause.
+	 */
+	public void checkLeaks() {
+		List<Throwable> leaks = leaks();
+		if (!leaks.isEmpty())
+			throw new IllegalStateException("ObjectPool " + name + " has " + leaks.size() + " not released objects", leaks.get(0));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ObjectPool [name=" + name + ", free=" + nrOfFree + ", outstanding=" + nrOfOutstanding + ", created=" + nrOfCreated + "]";
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage.Kind;
+
+/**
+ * 	Invokes entry point which has only int, long and double parameters without boxing.
+ * Arguments are passed as long bits array (see {@link Kind}), result is returned as long bits.
+ * 
+ * Method handle is adapted once to uniform type (Object, long[])long,
+ * so invokeExact does not need Object[] and boxed values like Method.invoke does.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public final class PrimitiveInvoker {
+
+	private static final MethodHandle LONG_BITS_TO_DOUBLE;
+	private static final MethodHandle DOUBLE_TO_RAW_LONG_BITS;
+	static {
+		try {
+			LONG_BITS_TO_DOUBLE = MethodHandles.publicLookup().findStatic(Double.class, "longBitsToDouble", methodType(double.class, long.class));
+			DOUBLE_TO_RAW_LONG_BITS = MethodHandles.publicLookup().findStatic(Double.class, "doubleToRawLongBits", methodType(long.class, double.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	public final Method 	method;
+	public final Kind[] 	parameterKinds;
+	public final Kind 		returnKind;		// null when method returns void
+	private final MethodHandle handle;
+
+	private PrimitiveInvoker(Method method, Kind[] parameterKinds, Kind returnKind, MethodHandle handle) {
+		super();
+		this.method = method;
+		this.parameterKinds = parameterKinds;
+		this.returnKind = returnKind;
+		this.handle = handle;
+	}
+
+	/**
+	 * @return invoker or null when method has other than int, long, double parameters or result, 
+	 * 			or method is not accessible
+	 */
+	public static PrimitiveInvoker forMethod(Method method) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		if (parameterTypes.length==0)
+			return null;
+
+		Kind[] parameterKinds = new Kind[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterKinds[i] = Kind.of(parameterTypes[i]);
+			if (parameterKinds[i]==null)
+				return null;
+		}
+
+		Kind returnKind = Kind.of(method.getReturnType());
+		if (returnKind==null && method.getReturnType()!=void.class)
+			return null;
+
+		MethodHandle mh;
+		try {
+			mh = MethodHandles.publicLookup().unreflect(method);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		int offset = isStatic ? 0 : 1;
+		for (int i = 0; i < parameterKinds.length; i++)
+			if (parameterKinds[i]==Kind.DOUBLE)
+				mh = MethodHandles.filterArguments(mh, offset + i, LONG_BITS_TO_DOUBLE);
+
+		if (returnKind==Kind.DOUBLE)
+			mh = MethodHandles.filterReturnValue(mh, DOUBLE_TO_RAW_LONG_BITS);
+		else if (returnKind==null)
+			mh = MethodHandles.filterReturnValue(mh, MethodHandles.constant(long.class, 0L));
+
+		if (isStatic)
+			mh = MethodHandles.dropArguments(mh, 0, Object.class);
+
+		Class<?>[] uniformParameters = new Class<?>[parameterKinds.length + 1];
+		Arrays.fill(uniformParameters, long.class);
+		uniformParameters[0] = Object.class;
+		// int parameters and result are converted from/to long
+		mh = MethodHandles.explicitCastArguments(mh, MethodType.methodType(long.class, uniformParameters));
+		mh = mh.asSpreader(long[].class, parameterKinds.length);
+
+		return new PrimitiveInvoker(method, parameterKinds, returnKind, mh);
+	}
+
+	/**
+	 * @param target	component instance, ignored for static method
+	 * @param args		arguments as long bits
+	 * @return result as long bits, 0 when method returns void
+	 * @throws InvocationTargetException when method throws, same as Method.invoke
+	 */
+	public long invoke(Object target, long[] args) throws InvocationTargetException {
+		try {
+			return (long) handle.invokeExact(target, args);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PrimitiveInvoker [method=" + method + ", parameterKinds=" + Arrays.toString(parameterKinds) + ", returnKind=" + returnKind + "]";
+	}
+}
@@ -15,24 +15,90 @@
  */
 package lite.flow.runtime.kiss;
 
+import java.util.concurrent.Callable;
+
 import lite.flow.api.activity.RequestContext;
 
 /**
+ * 	Carries request context of currently executing component method call.
+ * Context is bound to calling thread, so component instances may be invoked concurrently
+ * and injected Output.emit(data) still sends data with correct request context.
+ * 
+ * Usage:
+ * <pre>
+ *	RequestContext previous = RequestContextCarrier.bind(requestContext);
+ *	try {
+ *		...
+ *	} finally {
+ *		RequestContextCarrier.restore(previous);
+ *	}
+ * </pre>
+ * Bind and restore does not allocate, per thread entry is created only once.
+ * When component continues work in other thread, use wrap to carry context there.
+ * 
  * @author ToivoAdams
  *
  */
-public class RequestContextCarrier {
+public final class RequestContextCarrier {
+
+	private static final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+	private RequestContextCarrier() {
+	}
 
-	private RequestContext requestContext;
+	/**
+	 * @return request context bound to current thread or null
+	 */
+	public static RequestContext getRequestContext() {
+		return current.get();
+	}
+
+	/**
+	 * 	Binds request context to current thread.
+	 * 
+	 * @return previously bound context, should be passed to restore
+	 */
+	public static RequestContext bind(RequestContext requestContext) {
+		RequestContext previous = current.get();
+		current.set(requestContext);
+		return previous;
+	}
+
+	/**
+	 * 	Restores context which was bound before bind call.
+	 */
+	public static void restore(RequestContext previous) {
+		// set(null) instead of remove(), so next bind does not allocate new entry
+		current.set(previous);
+	}
 
-	public RequestContext getRequestContext() {
-		return requestContext;
+	/**
+	 * 	Captures current request context, runnable executes with it in any thread.
+	 */
+	public static Runnable wrap(Runnable runnable) {
+		RequestContext captured = current.get();
+		return () -> {
+			RequestContext previous = bind(captured);
+			try {
+				runnable.run();
+			} finally {
+				restore(previous);
+			}
+		};
 	}
 
-	public void setRequestContext(RequestContext requestContext) {
-		this.requestContext = requestContext;
+	/**
+	 * 	Captures current request context, callable executes with it in any thread.
+	 */
+	public static <V> Callable<V> wrap(Callable<V> callable) {
+		RequestContext captured = current.get();
+		return () -> {
+			RequestContext previous = bind(captured);
+			try {
+				return callable.call();
+			} finally {
+				restore(previous);
+			}
+		};
 	}
-	
-	
-	
 }
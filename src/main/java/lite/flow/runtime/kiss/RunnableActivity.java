@@ -34,6 +34,55 @@ public interface RunnableActivity extends Consumer, Runnable {
 	 * @param destinationName	destination may have different input name
 	 */
 	public void addDestination(String ouputName, Consumer consumer, String destinationName);
+
+	/**
+	 * 	Set how output port distributes messages to its destinations.
+	 * 
+	 * @param outputName
+	 * @param strategy
+	 */
+	default public void setDistribution(String outputName, DistributionStrategy strategy) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support distribution strategies");
+	}
+
+	/**
+	 * 	Set flow wide memory budget, activity charges data it holds against it.
+	 * Should be set before activity receives messages.
+	 * 
+	 * @param memoryBudget
+	 */
+	default public void setMemoryBudget(MemoryBudget memoryBudget) {
+		// activity without own queues or pending data does not account memory
+	}
+
+	/**
+	 * 	Set flow wide profiler, activity records CPU time and allocations of its message processing.
+	 * Null disables profiling.
+	 * 
+	 * @param profiler
+	 */
+	default public void setProfiler(ActivityProfiler profiler) {
+		// activity without own thread has nothing to measure
+	}
+
+	/**
+	 * 	Set flow wide latency tracker, activity records queue wait and service time of every message.
+	 * Null disables tracking. Should be set before activity receives messages.
+	 * 
+	 * @param latencyTracker
+	 */
+	default public void setLatencyTracker(LatencyTracker latencyTracker) {
+		// activity without own queue has nothing to measure
+	}
+
+	/**
+	 * 	Set flow wide cancelled requests, activity skips their messages.
+	 * 
+	 * @param cancellations
+	 */
+	default public void setCancellations(Cancellations cancellations) {
+		// activity without own queue has nothing to skip
+	}
 	
 //	public String getName();
 }
@@ -17,15 +17,24 @@ package lite.flow.runtime.kiss;
 
 import static lite.flow.util.ActivityInspector.inspect;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
 
 import lite.flow.api.flow.define.Component;
 import lite.flow.util.ActivityInspector.EntryPoint;
 import lite.flow.util.ActivityInspector.InspectResult;
+import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
 import lite.log.api.ExecutionContext;
 import lite.log.api.Log;
 import lite.log.api.LogFactory;
+import lite.log.api.event.MiddleEvent;
 import lite.log.intercept.Modifier;
 
 /**
@@ -38,6 +47,8 @@ import lite.log.intercept.Modifier;
 public class RunnableComponent extends SequentialActivity {
 
 	private final Correlator[] correlators;
+	// input name -> correlators whose entry point takes that input
+	private final Map<String, Correlator[]> routes;
 	private final MethodInvokerSequential methodInvoker;
 	
 	/**
@@ -48,12 +59,25 @@ public class RunnableComponent extends SequentialActivity {
 	 */
 	public RunnableComponent(Integer inputQueueLength, ExecutionContext executionContext, LogFactory logFactory, Component component, ExecutorService executorService) 
 			throws ReflectiveOperationException {
+		this(inputQueueLength, executionContext, logFactory, component, executorService, null);
+	}
+
+	/**
+	 * @param blockingExecutor	executor for {@link Blocking} component invocations, 
+	 * 							when null blocking component is invoked in its activity thread
+	 * @throws ReflectiveOperationException 
+	 */
+	public RunnableComponent(Integer inputQueueLength, ExecutionContext executionContext, LogFactory logFactory, Component component, ExecutorService executorService
+			, BlockingExecutor blockingExecutor) throws ReflectiveOperationException {
 		super(inputQueueLength, executionContext, logFactory);
 		
 		InspectResult inspectResult = inspect(component.componentClazz);
 		
 		this.methodInvoker = Modifier.addLogging(MethodInvokerSequential.class, executionContext, logFactory)
 				.newInstance(inputQueueLength, executionContext, logFactory, executorService, component, inspectResult.withoutExplicitOutputPort);
+		int maxConcurrency = BlockingExecutor.blockingConcurrency(component);
+		if (blockingExecutor!=null && maxConcurrency>0)
+			methodInvoker.setBlockingExecutor(blockingExecutor, maxConcurrency);
 
 		correlators = new Correlator[inspectResult.entryPoints.length];
 		int i = 0;
@@ -65,6 +89,7 @@ public class RunnableComponent extends SequentialActivity {
 			correlator.addDestination("collectedMethodParametersRow", methodInvoker, "collectedMethodParametersRow");
 			correlators[i++] = correlator;
 		}
+		this.routes = createRoutes(inspectResult.entryPoints, correlators);
 		
 //		Class<Correlator> correlatorClass = Modifier.addLogging0(Correlator.class, executionContext, logFactory);
 //		Constructor<Correlator> correlatorConstrutor =  correlatorClass.getConstructor(Integer.TYPE, ExecutionContext.class, Method.class, LogFactory.class);
@@ -84,15 +109,69 @@ public class RunnableComponent extends SequentialActivity {
 		}
 	}
 
+	/**
+	 * 	Routing table is computed once, so message goes only to correlators which use it.
+	 */
+	static Map<String, Correlator[]> createRoutes(EntryPoint[] entryPoints, Correlator[] correlators) {
+		Map<String, List<Correlator>> routeLists = new HashMap<>();
+		for (int i = 0; i < entryPoints.length; i++)
+			for (String inputName : entryPoints[i].inputNames) {
+				if (inputName==null)
+					continue;
+				List<Correlator> targets = routeLists.computeIfAbsent(inputName, name -> new ArrayList<>());
+				if (!targets.contains(correlators[i]))
+					targets.add(correlators[i]);
+			}
+
+		Map<String, Correlator[]> routes = new HashMap<>();
+		for (Map.Entry<String, List<Correlator>> entry : routeLists.entrySet())
+			routes.put(entry.getKey(), entry.getValue().toArray(new Correlator[entry.getValue().size()]));
+		return routes;
+	}
+
+	/**
+	 * @return correlators for input or null when no entry point takes input
+	 */
+	private Correlator[] route(String inputName, Object message) {
+		Correlator[] targets = routes.get(inputName);
+		if (targets==null) {
+			MiddleEvent middleEvent = new MiddleEvent(Level.WARNING, "no entry point takes input '" + inputName + "', dropping " + message, null, executionContext, logFactory.newCid());
+			logFactory.logger().log(middleEvent);
+		}
+		return targets;
+	}
+
 	/* (non-Javadoc)
 	 * @see lite.flow.runtime.kiss.simplest.SequentialActivity#processMessage(lite.flow.runtime.kiss.data.DataMessage)
 	 */
 	@Override
-	public final Object processDataMessage(DataMessage<?> dataMessage) {
+	public final Object processDataMessage(DataMessage<?> dataMessage, String inputName) {
 //    	System.out.println("===============> RunnableComponent.processMessage");
 		
-		for (Correlator correlator : correlators)
-			correlator.enqueue(dataMessage);
+		Correlator[] targets = route(inputName, dataMessage);
+		if (targets==null) {
+			OffHeapPayload.releaseIfPayload(dataMessage.data, 1);
+			return dataMessage;
+		}
+
+		// each correlator which accepted message holds its own payload reference
+		OffHeapPayload.retainIfPayload(dataMessage.data, targets.length);
+		int delivered = 0;
+		for (int i = 0; i < targets.length; i++)
+			if (targets[i].enqueue(dataMessage, inputName))
+				delivered++;
+		OffHeapPayload.releaseIfPayload(dataMessage.data, targets.length - delivered + 1);
+		return dataMessage;
+	}
+
+	@Override
+	public final Object processPrimitiveDataMessage(PrimitiveDataMessage dataMessage, String inputName) {
+		Correlator[] targets = route(inputName, dataMessage);
+		if (targets==null)
+			return dataMessage;
+
+		for (int i = 0; i < targets.length; i++)
+			targets[i].enqueue(dataMessage, inputName);
 		return dataMessage;
 	}
 
@@ -105,4 +184,50 @@ public class RunnableComponent extends SequentialActivity {
 		methodInvoker.addDestination(ouputName, consumer, destinationName);
 	}
 
+	@Override
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		super.setMemoryBudget(memoryBudget);
+		methodInvoker.setMemoryBudget(memoryBudget);
+		for (Correlator correlator : correlators)
+			correlator.setMemoryBudget(memoryBudget);
+	}
+
+	@Override
+	public void setProfiler(ActivityProfiler profiler) {
+		super.setProfiler(profiler);
+		methodInvoker.setProfiler(profiler);
+		for (Correlator correlator : correlators)
+			correlator.setProfiler(profiler);
+	}
+
+	@Override
+	public void setLatencyTracker(LatencyTracker latencyTracker) {
+		super.setLatencyTracker(latencyTracker);
+		methodInvoker.setLatencyTracker(latencyTracker);
+		for (Correlator correlator : correlators)
+			correlator.setLatencyTracker(latencyTracker);
+	}
+
+	@Override
+	public void setCancellations(Cancellations cancellations) {
+		super.setCancellations(cancellations);
+		methodInvoker.setCancellations(cancellations);
+		for (Correlator correlator : correlators)
+			correlator.setCancellations(cancellations);
+	}
+
+	/**
+	 * 	Commands are passed to all correlators.
+	 */
+	@Override
+	public void processCommandMessage(DCMessage commandMessage, String inputName) {
+		for (Correlator correlator : correlators)
+			correlator.enqueue(commandMessage);
+	}
+
+	@Override
+	public final void setDistribution(String outputName, DistributionStrategy strategy) {
+		methodInvoker.setDistribution(outputName, strategy);
+	}
+
 }
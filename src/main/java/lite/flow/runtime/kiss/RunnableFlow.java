@@ -14,10 +14,16 @@ import lite.flow.api.flow.define.Activity;
 import lite.flow.api.flow.define.Component;
 import lite.flow.api.flow.define.Connection;
 import lite.flow.api.flow.define.Flow;
+import lite.flow.util.UniqueId;
+import lite.flow.runtime.kiss.data.CancelCommand;
 import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
 import lite.log.api.ExecutionContext;
+import lite.log.api.Log;
 import lite.log.api.LogFactory;
+import lite.log.jfr.FlowEvents;
 
 /**
  * @author ToivoAdams
@@ -28,6 +34,9 @@ public class RunnableFlow extends SequentialActivity {
 	protected final Flow flow;
 	protected final Map<String,RunnableActivity> runnableActivities;
 	protected final ExecutorService executorService;
+	protected final Distributions distributions;
+	// invocations of blocking components, see Blocking
+	protected final BlockingExecutor blockingExecutor;
 	
 	// Note!!!! initially only one input and output connector
 	protected final InputConnector inputConnector;
@@ -40,13 +49,25 @@ public class RunnableFlow extends SequentialActivity {
 	 * @throws ReflectiveOperationException 
 	 */
 	public RunnableFlow(Integer inputQueueLength, ExecutionContext executionContext, LogFactory logFactory, Flow flow) throws ReflectiveOperationException {
+		this(inputQueueLength, executionContext, logFactory, flow, new Distributions());
+	}
+
+	/**
+	 * @param distributions		activity outputs distribution strategies, for example round robin between parallel consumers
+	 * @throws ReflectiveOperationException 
+	 */
+	public RunnableFlow(Integer inputQueueLength, ExecutionContext executionContext, LogFactory logFactory, Flow flow, Distributions distributions) throws ReflectiveOperationException {
 		super(inputQueueLength, executionContext, logFactory);
+		requireNonNull(distributions, "RunnableFlow distributions should not be null");
 		this.flow = flow;
+		this.distributions = distributions;
 		this.executorService = Executors.newFixedThreadPool(50);
+		this.blockingExecutor = new BlockingExecutor("blocking-" + flow.flowName);
 		this.runnableActivities = createRunnableActivities(flow);
 		addConnections(runnableActivities, flow);
 		this.inputConnector = createInputConnector(flow);
 		this.outputConnector = createOutputConnector(flow);
+		setCancellations(new Cancellations());
 
 		startAllActivities(runnableActivities, executorService);
 	}
@@ -82,6 +103,10 @@ public class RunnableFlow extends SequentialActivity {
 			RunnableActivity from = findActivity(connection.from.name);
 			RunnableActivity to = findActivity(connection.to.name);
 			from.addDestination(connection.fromPort, to, connection.toPort);
+
+			DistributionStrategy strategy = distributions.get(connection.from.name, connection.fromPort);
+			if (strategy!=null)
+				from.setDistribution(connection.fromPort, strategy);
 		}
 	}
 
@@ -91,7 +116,7 @@ public class RunnableFlow extends SequentialActivity {
 			if (activity instanceof Component) {
 				Component component = (Component) activity;
 				ExecutionContext activityExecutionContext = executionContext.forActivity(activity);
-				RunnableComponent runnableComponent = new RunnableComponent(inputQueueLength, activityExecutionContext, logFactory, component, executorService);
+				RunnableComponent runnableComponent = new RunnableComponent(inputQueueLength, activityExecutionContext, logFactory, component, executorService, blockingExecutor);
 				runnableActivities.put(activity.name, runnableComponent);
 			}
 		}
@@ -122,15 +147,138 @@ public class RunnableFlow extends SequentialActivity {
 		from.addDestination(ouputName, consumer, destinationName);
 	}
 
+	/**
+	 * 	Flow outputs are outputs of activity which produces them, so strategy is set there.
+	 */
+	@Override
+	public void setDistribution(String outputName, DistributionStrategy strategy) {
+		if (flow.flowOutputs==null || flow.flowOutputs.length<1)
+			return;
+
+		RunnableActivity from = findActivity(flow.flowOutputs[0].from.name);
+		from.setDistribution(outputName, strategy);
+	}
+
+	/**
+	 * 	New requests are rejected when flow memory budget is exceeded.
+	 */
+	@Log
+	@Override
+	public boolean enqueue(DCMessage dcmsg) {
+		MemoryBudget budget = memoryBudget;
+		if (budget!=null && budget.rejectNewRequest()) {
+			FlowEvents.enqueueRejected(executionContext, null, dcmsg.getContext(), "memory budget exceeded");
+			return false;
+		}
+		return super.enqueue(dcmsg);
+	}
+
+	@Log
+	@Override
+	public boolean enqueue(DCMessage dcmsg, String destinationName) {
+		MemoryBudget budget = memoryBudget;
+		if (budget!=null && budget.rejectNewRequest()) {
+			FlowEvents.enqueueRejected(executionContext, null, dcmsg.getContext(), "memory budget exceeded");
+			return false;
+		}
+		return super.enqueue(dcmsg, destinationName);
+	}
+
+	@Override
+	public boolean canBeEnqueued() {
+		MemoryBudget budget = memoryBudget;
+		if (budget!=null && budget.isExceeded())
+			return false;
+		return super.canBeEnqueued();
+	}
+
+	/**
+	 * 	Budget is shared by all flow activities.
+	 */
+	@Override
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		super.setMemoryBudget(memoryBudget);
+		for (RunnableActivity activity : runnableActivities.values())
+			activity.setMemoryBudget(memoryBudget);
+	}
+
+	/**
+	 * 	Profiling mode, profiler is shared by all flow activities, see {@link ActivityProfiler#report()}.
+	 * Null disables profiling.
+	 */
+	@Override
+	public void setProfiler(ActivityProfiler profiler) {
+		super.setProfiler(profiler);
+		for (RunnableActivity activity : runnableActivities.values())
+			activity.setProfiler(profiler);
+	}
+
+	@Override
+	public void setCancellations(Cancellations cancellations) {
+		super.setCancellations(cancellations);
+		for (RunnableActivity activity : runnableActivities.values())
+			activity.setCancellations(cancellations);
+	}
+
+	public final Cancellations getCancellations() {
+		return cancellations;
+	}
+
+	/**
+	 * 	Caller gave up on request, flow stops working on it.
+	 * Queued messages of request are skipped, partial correlation rows are dropped 
+	 * and running component invocation can stop, see Cancellations.isCurrentRequestCancelled.
+	 * 
+	 * @return false when request was already cancelled
+	 */
+	public boolean cancel(UniqueId requestId) {
+		Cancellations cancellations = this.cancellations;
+		if (cancellations==null)
+			throw new IllegalStateException("RunnableFlow cancellations are not set");
+		boolean cancelled = cancellations.cancel(requestId);
+		processCommandMessage(new CancelCommand(requestId), null);
+		return cancelled;
+	}
+
+	/**
+	 * 	Commands are passed to all flow activities, 
+	 * when activity queue is full its correlation rows are dropped by timeout.
+	 */
+	@Override
+	public void processCommandMessage(DCMessage commandMessage, String inputName) {
+		for (RunnableActivity activity : runnableActivities.values())
+			activity.enqueue(commandMessage);
+	}
+
+	/**
+	 * 	Queue wait vs service time breakdown, tracker is shared by all flow activities, 
+	 * see {@link LatencyTracker#report()} and {@link LatencyTracker#breakdown}.
+	 * Null disables tracking.
+	 */
+	@Override
+	public void setLatencyTracker(LatencyTracker latencyTracker) {
+		super.setLatencyTracker(latencyTracker);
+		for (RunnableActivity activity : runnableActivities.values())
+			activity.setLatencyTracker(latencyTracker);
+	}
+
 	/* (non-Javadoc)
 	 * @see lite.flow.runtime.kiss.simplest.SequentialActivity#processDataMessage(lite.flow.runtime.kiss.data.DataMessage)
 	 */
 	@Override
-	public Object processDataMessage(DataMessage<?> dataMessage) {
+	public Object processDataMessage(DataMessage<?> dataMessage, String inputName) {
 		// route to input connector
 //		System.out.println("¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤¤ RunnableFlow processDataMessage got " + dataMessage);
 		
-		return inputConnector.enqueue(dataMessage);
+		boolean enqueued = inputConnector.enqueue(dataMessage, inputName);
+		if (!enqueued)
+			OffHeapPayload.releaseIfPayload(dataMessage.data, 1);
+		return enqueued;
+	}
+
+	@Override
+	public Object processPrimitiveDataMessage(PrimitiveDataMessage dataMessage, String inputName) {
+		return inputConnector.enqueue(dataMessage, inputName);
 	}
 
 	static class InputConnector implements Consumer {
@@ -145,14 +293,25 @@ public class RunnableFlow extends SequentialActivity {
 		
 		@Override
 		public boolean enqueue(DCMessage dcmsg) {
-			// Note!!! we don't send same DCMessage we received, we create new DCMessage using destinationName 
-			return destination.enqueue( dcmsg.cloneChangeDestinationName(destinationName));
+			// Note!!! we send same DCMessage we received, destinationName is passed separately
+			return destination.enqueue(dcmsg, destinationName);
+		}
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg, String inputName) {
+			// flow has only one input, so flow input name is not used
+			return destination.enqueue(dcmsg, destinationName);
 		}
 		
 		@Override
 		public boolean canBeEnqueued() {
 			return destination.canBeEnqueued();
 		}
+
+		@Override
+		public int queueDepth() {
+			return destination.queueDepth();
+		}
 	}
 	
 	/**
@@ -17,15 +17,21 @@ package lite.flow.runtime.kiss;
 
 import static java.util.Objects.*;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.DeadlineAware;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
 import lite.log.api.ExecutionContext;
 import lite.log.api.Log;
 import lite.log.api.LogFactory;
+import lite.log.api.Loggable;
+import lite.log.jfr.FlowEvents;
 
 /**
  * 	Actor like activity which executes all requests (messages) sequentially.
@@ -35,23 +41,44 @@ import lite.log.api.LogFactory;
  * @author ToivoAdams
  *
  */
-abstract public class SequentialActivity implements RunnableActivity {
+abstract public class SequentialActivity implements RunnableActivity, Loggable {
 
 	protected final Integer 					inputQueueLength;
-	protected final BlockingQueue<DCMessage> 	inputQueue;
+	protected final InputQueue 					inputQueue;
 	protected final ExecutionContext			executionContext;
 	protected final LogFactory 					logFactory;
+	protected volatile MemoryBudget 			memoryBudget;
+	protected volatile ActivityProfiler.Stats	profileStats;
+	protected volatile ActivityProfiler 		profiler;
+	protected volatile LatencyTracker 			latencyTracker;
+	protected volatile Cancellations 			cancellations;
+	// messages and rows dropped because request deadline passed
+	protected final AtomicLong 					expirations = new AtomicLong();
+	// edges by input name, used only by run loop thread, replaced when tracker is set
+	private volatile Map<String,LatencyTracker.Edge> trackedEdges;
 
 
 	public SequentialActivity(Integer inputQueueLength, ExecutionContext executionContext, LogFactory logFactory) {
 		super();
 		this.inputQueueLength = inputQueueLength;
 	//	this.inputQueue = new LinkedTransferQueue<>();
-		this.inputQueue = new ArrayBlockingQueue<DCMessage>(inputQueueLength);
+		this.inputQueue = new InputQueue(inputQueueLength);
+		// queue wait JFR events need enqueue time
+		this.inputQueue.setTimestamped(FlowEvents.ENABLED);
 		this.executionContext = executionContext;
 		this.logFactory = logFactory;
 	}
 
+	@Override
+	public ExecutionContext getExecutionContext() {
+		return executionContext;
+	}
+
+	@Override
+	public LogFactory getLogFactory() {
+		return logFactory;
+	}
+
 	/* (non-Javadoc)
 	 * @see lite.flow.runtime.kiss.simplest.Consumer#enqueue(lite.flow.runtime.kiss.data.DCMessage)
 	 */
@@ -59,7 +86,25 @@ abstract public class SequentialActivity implements RunnableActivity {
 	@Override
 	public boolean enqueue(DCMessage dcmsg) {
 		requireNonNull(dcmsg, "SequentialActivity.enqueue dcmsg should not be null");		
-		boolean result = inputQueue.offer(dcmsg);
+		String inputName = dcmsg instanceof DataMessage ? ((DataMessage<?>) dcmsg).dataName 
+				: dcmsg instanceof PrimitiveDataMessage ? ((PrimitiveDataMessage) dcmsg).dataName : null;
+		boolean result = inputQueue.offer(dcmsg, inputName);
+		if (!result)
+			FlowEvents.enqueueRejected(executionContext, inputName, dcmsg.getContext(), "queue full");
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see lite.flow.runtime.kiss.Consumer#enqueue(lite.flow.runtime.kiss.data.DCMessage, java.lang.String)
+	 */
+	// not @Log, called for every destination of fan-out and interception would allocate per call
+	@Override
+	public boolean enqueue(DCMessage dcmsg, String destinationName) {
+		requireNonNull(dcmsg, "SequentialActivity.enqueue dcmsg should not be null");		
+		// message is shared, input name is kept in queue slot
+		boolean result = inputQueue.offer(dcmsg, destinationName);
+		if (!result)
+			FlowEvents.enqueueRejected(executionContext, destinationName, dcmsg.getContext(), "queue full");
 		return result;
 	}
 
@@ -69,18 +114,110 @@ abstract public class SequentialActivity implements RunnableActivity {
 	@Override
 	public boolean canBeEnqueued() {
 		// current estimation is very imprecise
-		if (inputQueue.remainingCapacity()>3)
-			return true;
-		return false;
+		return inputQueue.hasSpace(3);
+	}
+
+	@Override
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		inputQueue.setBudget(memoryBudget);
+	}
+
+	@Override
+	public void setProfiler(ActivityProfiler profiler) {
+		this.profileStats = profiler==null ? null : profiler.stats(profileName());
+		this.profiler = profiler;
+	}
+
+	public final ActivityProfiler getProfiler() {
+		return profiler;
+	}
+
+	@Override
+	public void setLatencyTracker(LatencyTracker latencyTracker) {
+		this.trackedEdges = new HashMap<>();
+		this.latencyTracker = latencyTracker;
+		inputQueue.setTimestamped(latencyTracker!=null || FlowEvents.ENABLED);
+	}
+
+	public final LatencyTracker getLatencyTracker() {
+		return latencyTracker;
+	}
+
+	private LatencyTracker.Edge trackedEdge(LatencyTracker latencyTracker, String inputName) {
+		Map<String,LatencyTracker.Edge> edges = trackedEdges;
+		LatencyTracker.Edge edge = edges.get(inputName);
+		if (edge==null) {
+			edge = latencyTracker.edge(profileName(), inputName);
+			edges.put(inputName, edge);
+		}
+		return edge;
+	}
+
+	/**
+	 * @return name of this activity stats in ActivityProfiler
+	 */
+	protected String profileName() {
+		return executionContext instanceof FlowExecutionContext 
+				? ((FlowExecutionContext) executionContext).activityName : String.valueOf(executionContext);
+	}
+
+	@Override
+	public void setCancellations(Cancellations cancellations) {
+		this.cancellations = cancellations;
+	}
+
+	/**
+	 * @return how many messages (and correlation rows) of this activity were dropped because request deadline passed
+	 */
+	public final long expirations() {
+		return expirations.get();
+	}
+
+	/**
+	 * 	Input queue, for example to set disk overflow for bursty input.
+	 */
+	public final InputQueue getInputQueue() {
+		return inputQueue;
+	}
+
+	@Override
+	public int queueDepth() {
+		return inputQueue.size();
 	}
 
 	@Log
 	@Override
 	public void run() {
+		InputQueue.Entry entry = new InputQueue.Entry();
 		while( true ) {
 			try {
-				DCMessage dcmsg = inputQueue.poll(1900, TimeUnit.MILLISECONDS);
-				processMessage(dcmsg);
+				if (inputQueue.poll(entry, 1900, TimeUnit.MILLISECONDS)) {
+					Cancellations cancellations = this.cancellations;
+					if (cancellations!=null && !cancellations.isEmpty() && cancellations.isCancelled(entry.message.getContext())) {
+						cancellations.messageSkipped();
+						discardMessage(entry.message, entry.inputName);
+						entry.clear();
+						continue;
+					}
+					LatencyTracker latencyTracker = this.latencyTracker;
+					long dequeueNanos = latencyTracker==null && !FlowEvents.ENABLED ? 0 : System.nanoTime();
+					if (FlowEvents.ENABLED && entry.enqueueNanos!=0)
+						FlowEvents.queueWait(executionContext, entry.inputName, entry.message.getContext(), dequeueNanos - entry.enqueueNanos);
+					ActivityProfiler.Stats stats = profileStats;
+					ActivityProfiler profiler = this.profiler;
+					if (profiler!=null && stats!=null && profiler.count(stats)) {
+						long cpuTime = profiler.cpuTime();
+						long allocatedBytes = profiler.allocatedBytes();
+						processMessage(entry.message, entry.inputName);
+						profiler.record(stats, cpuTime, allocatedBytes);
+					} else
+						processMessage(entry.message, entry.inputName);
+					if (latencyTracker!=null && entry.message!=null)
+						latencyTracker.record(trackedEdge(latencyTracker, entry.inputName), entry.message.getContext()
+								, entry.enqueueNanos, dequeueNanos, System.nanoTime());
+					entry.clear();
+				}
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e);
 			}
@@ -88,18 +225,30 @@ abstract public class SequentialActivity implements RunnableActivity {
 	}
 	
 	@Log
-	public final void processMessage(DCMessage dcmsg) {
+	public final void processMessage(DCMessage dcmsg, String inputName) {
 		
 		if (dcmsg==null)
 			return;
 
+		// caller does not wait anymore, do not spend work on it
+		if (DeadlineAware.isExpired(dcmsg.getContext(), System.currentTimeMillis())) {
+			expirations.incrementAndGet();
+			discardMessage(dcmsg, inputName);
+			return;
+		}
+
 		switch (dcmsg.getDCType()) {
 		case Data:
 			DataMessage<?> dataMessage = (DataMessage<?>) dcmsg;
-			processDataMessage(dataMessage);
+			processDataMessage(dataMessage, inputName);
+			break;
+
+		case PrimitiveData:
+			processPrimitiveDataMessage((PrimitiveDataMessage) dcmsg, inputName);
 			break;
 
 		case Command:
+			processCommandMessage(dcmsg, inputName);
 			break;
 
 		default:			
@@ -107,5 +256,37 @@ abstract public class SequentialActivity implements RunnableActivity {
 		}		
 	}
 	
-	abstract public Object processDataMessage(DataMessage<?> dataMessage);
+	/**
+	 * @param dataMessage	message may be shared with other activities
+	 * @param inputName		input (port) name message was sent to, use this instead of dataMessage.dataName
+	 */
+	abstract public Object processDataMessage(DataMessage<?> dataMessage, String inputName);
+
+	/**
+	 * 	Default implementation boxes value and uses processDataMessage,
+	 * activities which can pass primitive values further should override this.
+	 * 
+	 * @param dataMessage	message may be shared with other activities
+	 * @param inputName		input (port) name message was sent to
+	 */
+	public Object processPrimitiveDataMessage(PrimitiveDataMessage dataMessage, String inputName) {
+		return processDataMessage(dataMessage.toDataMessage(), inputName);
+	}
+
+	/**
+	 * 	Default implementation ignores commands.
+	 * 
+	 * @param commandMessage	for example CancelCommand
+	 */
+	public void processCommandMessage(DCMessage commandMessage, String inputName) {
+	}
+
+	/**
+	 * 	Message of cancelled request is not processed, release what it holds.
+	 * Default implementation releases OffHeapPayload data.
+	 */
+	protected void discardMessage(DCMessage dcmsg, String inputName) {
+		if (dcmsg instanceof DataMessage)
+			OffHeapPayload.releaseIfPayload(((DataMessage<?>) dcmsg).data, 1);
+	}
 }
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.MemoCache.Key;
+
+/**
+ * 	Tracks in-flight invocations by argument values.
+ * First request with given arguments leads (invokes component), 
+ * requests with equal arguments arriving before leader completes join it and 
+ * get leader result emitted to their own RequestContext.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SingleFlight {
+
+	private final Map<Key, List<RequestContext>> inFlight = new HashMap<>();
+
+	private final AtomicLong leaders 	= new AtomicLong();
+	private final AtomicLong coalesced 	= new AtomicLong();
+
+	/**
+	 * @return true when request joined in-flight invocation and should not invoke,
+	 * 			false when request leads and must call {@link #complete(Key)} after invocation
+	 */
+	public boolean join(Key key, RequestContext requestContext) {
+		synchronized (inFlight) {
+			List<RequestContext> waiters = inFlight.get(key);
+			if (waiters==null) {
+				inFlight.put(key, new ArrayList<>(2));
+				leaders.incrementAndGet();
+				return false;
+			}
+			waiters.add(requestContext);
+			coalesced.incrementAndGet();
+			return true;
+		}
+	}
+
+	/**
+	 * 	Ends leader invocation.
+	 * 
+	 * @return contexts of joined requests, waiting for leader result
+	 */
+	public List<RequestContext> complete(Key key) {
+		synchronized (inFlight) {
+			List<RequestContext> waiters = inFlight.remove(key);
+			return waiters==null ? Collections.emptyList() : waiters;
+		}
+	}
+
+	/**
+	 * 	Replaces leader which did not invoke (was cancelled or expired) with first joined request.
+	 * 
+	 * @return context of new leader, null when there are no joined requests and flight is completed
+	 */
+	public RequestContext promote(Key key) {
+		synchronized (inFlight) {
+			List<RequestContext> waiters = inFlight.get(key);
+			if (waiters==null)
+				return null;
+			if (waiters.isEmpty()) {
+				inFlight.remove(key);
+				return null;
+			}
+			coalesced.decrementAndGet();
+			return waiters.remove(0);
+		}
+	}
+
+	public int inFlight() {
+		synchronized (inFlight) {
+			return inFlight.size();
+		}
+	}
+
+	public long leaders() {
+		return leaders.get();
+	}
+
+	public long coalesced() {
+		return coalesced.get();
+	}
+
+	@Override
+	public String toString() {
+		return "SingleFlight [inFlight=" + inFlight() + ", leaders=" + leaders + ", coalesced=" + coalesced + "]";
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.util.Collection;
+
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+
+/**
+ * 	Estimates memory held by message data, used by {@link MemoryBudget}.
+ * Estimation should be fast, it is called for every queued message.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@FunctionalInterface
+public interface SizeEstimator {
+
+	/**
+	 * @return estimated size of data in bytes
+	 */
+	public long sizeOf(Object data);
+
+	/**
+	 * 	Shallow estimation of common types, unknown objects are counted as UNKNOWN_SIZE.
+	 * Collection and array elements are estimated one level deep.
+	 */
+	public static final SizeEstimator DEFAULT = new SizeEstimator() {
+		@Override
+		public long sizeOf(Object data) {
+			if (data==null)
+				return 0;
+			if (data instanceof Number || data instanceof Boolean || data instanceof Character)
+				return 16;
+			if (data instanceof CharSequence)
+				return 40 + 2L * ((CharSequence) data).length();
+			if (data instanceof byte[])
+				return 16 + ((byte[]) data).length;
+			if (data instanceof OffHeapPayload)
+				return 32 + ((OffHeapPayload) data).length();
+			if (data instanceof CorrelatedEntryPointArguments)
+				return ((CorrelatedEntryPointArguments) data).chargedBytes;
+			if (data instanceof Object[]) {
+				long size = 16 + 4L * ((Object[]) data).length;
+				for (Object element : (Object[]) data)
+					size += shallow(element);
+				return size;
+			}
+			if (data instanceof Collection) {
+				long size = 48;
+				for (Object element : (Collection<?>) data)
+					size += 16 + shallow(element);
+				return size;
+			}
+			return UNKNOWN_SIZE;
+		}
+
+		private long shallow(Object element) {
+			if (element instanceof Object[] || element instanceof Collection)
+				return UNKNOWN_SIZE;
+			return sizeOf(element);
+		}
+	};
+
+	public static final long UNKNOWN_SIZE = 64;
+}
@@ -0,0 +1,383 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage.Kind;
+
+/**
+ * 	Disk overflow of {@link InputQueue}. 
+ * Messages which do not fit into queue memory are serialized to memory mapped segment files 
+ * and read back in FIFO order. Fully read segments are deleted.
+ * 
+ * Record: int length followed by encoded message, length -1 marks rest of segment unused.
+ * 
+ * append and take are not thread safe, InputQueue calls them under its lock.
+ * Encoding, decoding and deleting read segments are done outside queue lock, 
+ * so serialization and file deletion do not block producers or consumer.
+ * Spilled messages are lost when process stops, spill is for absorbing bursts, not for durability.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SpillFile implements Closeable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * 	Message encoding for spilling.
+	 */
+	public interface Codec {
+		/**
+		 * @return encoded message or null when message can not be spilled
+		 */
+		byte[] encode(DCMessage message, String inputName);
+
+		void decode(byte[] bytes, InputQueue.Entry entry);
+	}
+
+	/**
+	 * 	Java serialization of DataMessage and PrimitiveDataMessage, 
+	 * request context and data should be Serializable.
+	 */
+	public static final Codec JAVA_SERIALIZATION = new Codec() {
+		@Override
+		public byte[] encode(DCMessage message, String inputName) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(inputName);
+				if (message instanceof DataMessage) {
+					DataMessage<?> dataMessage = (DataMessage<?>) message;
+					out.writeByte(0);
+					out.writeObject(dataMessage.context);
+					out.writeObject(dataMessage.dataName);
+					out.writeObject(dataMessage.data);
+				} else if (message instanceof PrimitiveDataMessage) {
+					PrimitiveDataMessage primitive = (PrimitiveDataMessage) message;
+					out.writeByte(1);
+					out.writeObject(primitive.context);
+					out.writeObject(primitive.dataName);
+					out.writeByte(primitive.kind().ordinal());
+					out.writeLong(primitive.bitsAs(primitive.kind()));
+				} else
+					return null;
+			} catch (NotSerializableException e) {
+				return null;
+			} catch (IOException e) {
+				throw new IllegalStateException("SpillFile encode failed: " + message, e);
+			}
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public void decode(byte[] bytes, InputQueue.Entry entry) {
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				entry.inputName = (String) in.readObject();
+				byte type = in.readByte();
+				RequestContext context = (RequestContext) in.readObject();
+				String dataName = (String) in.readObject();
+				if (type==0)
+					entry.message = new DataMessage<>(context, dataName, in.readObject());
+				else {
+					Kind kind = Kind.values()[in.readByte()];
+					entry.message = PrimitiveDataMessage.of(kind, context, dataName, in.readLong());
+				}
+			} catch (IOException | ClassNotFoundException e) {
+				throw new IllegalStateException("SpillFile decode failed", e);
+			}
+		}
+	};
+
+	private static final class Segment {
+		final Path 				file;
+		final MappedByteBuffer 	buffer;
+		int 					writePosition;
+		int 					readPosition;
+
+		Segment(Path file, MappedByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+	}
+
+	private final Path 		directory;
+	private final String 	baseName;
+	private final int 		segmentSize;
+	private final long 		maxDiskBytes;
+	private final Codec 	codec;
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private int 			segmentSequence;
+	private int 			count;
+	// fully read segments, waiting for unmap and delete outside queue lock
+	private final List<Segment> readSegments = new ArrayList<>();
+
+	// metrics
+	public final AtomicLong spilled 	= new AtomicLong();
+	public final AtomicLong readBack 	= new AtomicLong();
+	public final AtomicLong rejected 	= new AtomicLong();
+
+	public SpillFile(Path directory, String baseName, long maxDiskBytes) throws IOException {
+		this(directory, baseName, DEFAULT_SEGMENT_SIZE, maxDiskBytes, JAVA_SERIALIZATION);
+	}
+
+	/**
+	 * @param segmentSize	segment file size, biggest message which can be spilled is a bit smaller
+	 * @param maxDiskBytes	maximum size of all segment files, messages over it are rejected
+	 */
+	public SpillFile(Path directory, String baseName, int segmentSize, long maxDiskBytes, Codec codec) throws IOException {
+		super();
+		if (segmentSize<64)
+			throw new IllegalArgumentException("SpillFile segmentSize too small: " + segmentSize);
+		if (maxDiskBytes<segmentSize)
+			throw new IllegalArgumentException("SpillFile maxDiskBytes " + maxDiskBytes + " should not be less than segmentSize " + segmentSize);
+		this.directory = directory;
+		this.baseName = baseName;
+		this.segmentSize = segmentSize;
+		this.maxDiskBytes = maxDiskBytes;
+		this.codec = codec;
+
+		Files.createDirectories(directory);
+		// spilled messages do not survive restart, remove leftovers
+		try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, baseName + "-*.spill")) {
+			for (Path file : stale)
+				Files.delete(file);
+		}
+	}
+
+	/**
+	 * 	Thread safe, does not change spill state.
+	 * 
+	 * @return encoded message or null when message can not be encoded or is too big
+	 */
+	public byte[] encode(DCMessage message, String inputName) {
+		byte[] bytes = codec.encode(message, inputName);
+		if (bytes==null || bytes.length + 8 > segmentSize) {
+			rejected.incrementAndGet();
+			return null;
+		}
+		return bytes;
+	}
+
+	/**
+	 * 	Thread safe.
+	 */
+	public void decode(byte[] bytes, InputQueue.Entry entry) {
+		codec.decode(bytes, entry);
+	}
+
+	/**
+	 * @param bytes		message encoded by {@link #encode(DCMessage, String)}
+	 * @return false when disk limit is reached or message does not fit into segment
+	 */
+	public boolean append(byte[] bytes) throws IOException {
+		if (4 + bytes.length > segmentSize) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		Segment segment = segments.peekLast();
+		if (segment==null || segmentSize - segment.writePosition < 4 + bytes.length) {
+			if ((long) (segments.size() + 1) * segmentSize > maxDiskBytes) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (segment!=null && segmentSize - segment.writePosition >= 4)
+				segment.buffer.putInt(segment.writePosition, -1);
+			segment = newSegment();
+		}
+
+		ByteBuffer buffer = segment.buffer.duplicate();
+		buffer.position(segment.writePosition);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+		segment.writePosition += 4 + bytes.length;
+		count++;
+		spilled.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * 	Reads oldest spilled message, use {@link #decode(byte[], InputQueue.Entry)} to decode it
+	 * and {@link #deleteReadSegments()} to free disk space.
+	 * 
+	 * @return encoded message or null when nothing is spilled
+	 */
+	public byte[] take() {
+		while (count>0) {
+			Segment segment = segments.peekFirst();
+			boolean endOfSegment = segment.readPosition==segment.writePosition 
+					|| segmentSize - segment.readPosition < 4 
+					|| segment.buffer.getInt(segment.readPosition)==-1;
+			if (endOfSegment) {
+				// writer has moved to next segment, otherwise count would be 0
+				segments.pollFirst();
+				synchronized (readSegments) {
+					readSegments.add(segment);
+				}
+				continue;
+			}
+
+			ByteBuffer buffer = segment.buffer.duplicate();
+			buffer.position(segment.readPosition);
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			int length = bytes.length;
+			segment.readPosition += 4 + length;
+			count--;
+			readBack.incrementAndGet();
+			return bytes;
+		}
+		return null;
+	}
+
+	/**
+	 * 	Unmaps and deletes fully read segments. Thread safe, called outside queue lock.
+	 */
+	public void deleteReadSegments() throws IOException {
+		Segment[] segments;
+		synchronized (readSegments) {
+			if (readSegments.isEmpty())
+				return;
+			segments = readSegments.toArray(new Segment[readSegments.size()]);
+			readSegments.clear();
+		}
+		for (Segment segment : segments)
+			delete(segment);
+	}
+
+	/**
+	 * 	Mapping is dropped before delete, otherwise disk space is freed only when buffer is garbage collected
+	 * and on Windows mapped file can not be deleted at all.
+	 */
+	private static void delete(Segment segment) throws IOException {
+		unmap(segment.buffer);
+		Files.deleteIfExists(segment.file);
+	}
+
+	// sun.misc.Unsafe.invokeCleaner on Java 9+, null on Java 8
+	private static final Object 	UNSAFE;
+	private static final Method 	INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	/**
+	 * 	Frees mapping right away, buffer must not be used after this.
+	 * When JVM does not allow it, mapping is freed by garbage collector.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			if (INVOKE_CLEANER!=null)
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			else {
+				// Java 8, DirectByteBuffer.cleaner().clean()
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner!=null)
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left to garbage collector
+		}
+	}
+
+	private Segment newSegment() throws IOException {
+		Path file = directory.resolve(String.format("%s-%06d.spill", baseName, ++segmentSequence));
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// mapping stays valid after channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		Segment segment = new Segment(file, buffer);
+		segments.addLast(segment);
+		return segment;
+	}
+
+	/**
+	 * @return number of messages on disk
+	 */
+	public int size() {
+		return count;
+	}
+
+	public long diskBytes() {
+		return (long) segments.size() * segmentSize;
+	}
+
+	/**
+	 * @return true when at least one more segment can be created or current segment has space
+	 */
+	public boolean hasSpace() {
+		Segment last = segments.peekLast();
+		return (last!=null && segmentSize - last.writePosition > 1024) 
+				|| (long) (segments.size() + 1) * segmentSize <= maxDiskBytes;
+	}
+
+	/**
+	 * 	Deletes segment files, spilled messages are lost. Spill file must not be used by queue after this.
+	 */
+	@Override
+	public void close() throws IOException {
+		deleteReadSegments();
+		for (Segment segment : segments)
+			delete(segment);
+		segments.clear();
+		count = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "SpillFile [baseName=" + baseName + ", size=" + count + ", diskBytes=" + diskBytes() 
+			+ ", spilled=" + spilled + ", readBack=" + readBack + ", rejected=" + rejected + "]";
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import static java.util.Objects.requireNonNull;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.util.UniqueId;
+
+/**
+ * 	Command which tells activity to drop everything it holds for cancelled request.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class CancelCommand implements DCMessage {
+
+	public final UniqueId requestId;
+
+	public CancelCommand(UniqueId requestId) {
+		super();
+		requireNonNull(requestId, "CancelCommand requestId should not be null");
+		this.requestId = requestId;
+	}
+
+	@Override
+	public DCType getDCType() {
+		return DCType.Command;
+	}
+
+	/**
+	 * 	Command does not belong to request processing, so it has no context.
+	 */
+	@Override
+	public RequestContext getContext() {
+		return null;
+	}
+
+	@Override
+	public DCMessage cloneChangeDestinationName(String destinationName) {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "CancelCommand [requestId=" + requestId + "]";
+	}
+}
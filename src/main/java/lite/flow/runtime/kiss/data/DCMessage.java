@@ -27,6 +27,7 @@ public interface DCMessage {
 	
 	enum DCType {
 		Data,
+		PrimitiveData,	// int, long or double data without boxing, see PrimitiveDataMessage
 		Command
 	}
 
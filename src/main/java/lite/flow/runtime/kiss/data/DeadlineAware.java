@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import lite.flow.api.activity.RequestContext;
+
+/**
+ * 	Request context with deadline, after which caller does not wait for result anymore.
+ * Deadline travels with context through all activity hops.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public interface DeadlineAware {
+
+	long NO_DEADLINE = 0;
+
+	/**
+	 * @return deadline (System.currentTimeMillis based) or NO_DEADLINE
+	 */
+	long getDeadline();
+
+	/**
+	 * @return deadline of context or NO_DEADLINE
+	 */
+	static long deadlineOf(RequestContext requestContext) {
+		return requestContext instanceof DeadlineAware ? ((DeadlineAware) requestContext).getDeadline() : NO_DEADLINE;
+	}
+
+	/**
+	 * @return true when context has deadline which is passed
+	 */
+	static boolean isExpired(RequestContext requestContext, long now) {
+		long deadline = deadlineOf(requestContext);
+		return deadline!=NO_DEADLINE && deadline<now;
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import lite.flow.api.activity.RequestContext;
+
+/**
+ * 	Data message with double value.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class DoubleDataMessage extends PrimitiveDataMessage {
+
+	public final double value;
+
+	public DoubleDataMessage(RequestContext context, String dataName, double value) {
+		super(context, dataName);
+		this.value = value;
+	}
+
+	@Override
+	public Kind kind() {
+		return Kind.DOUBLE;
+	}
+
+	@Override
+	public long bitsAs(Kind kind) {
+		switch (kind) {
+		case INT:		return (int) value;
+		case LONG:		return (long) value;
+		default:		return Double.doubleToRawLongBits(value);
+		}
+	}
+
+	@Override
+	public Object boxed() {
+		return Double.valueOf(value);
+	}
+
+	@Override
+	public int valueHashCode() {
+		return Double.hashCode(value);
+	}
+
+	@Override
+	public DCMessage cloneChangeDestinationName(String destinationName) {
+		return new DoubleDataMessage(context, destinationName, value);
+	}
+
+	@Override
+	public String toString() {
+		return "DoubleDataMessage [context=" + context + ", " + dataName + "=" + value + "]";
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import lite.flow.api.activity.RequestContext;
+
+/**
+ * 	Data message with long value.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LongDataMessage extends PrimitiveDataMessage {
+
+	public final long value;
+
+	public LongDataMessage(RequestContext context, String dataName, long value) {
+		super(context, dataName);
+		this.value = value;
+	}
+
+	@Override
+	public Kind kind() {
+		return Kind.LONG;
+	}
+
+	@Override
+	public long bitsAs(Kind kind) {
+		switch (kind) {
+		case INT:		return (int) value;
+		case LONG:		return value;
+		default:		return Double.doubleToRawLongBits(value);
+		}
+	}
+
+	@Override
+	public Object boxed() {
+		return Long.valueOf(value);
+	}
+
+	@Override
+	public int valueHashCode() {
+		return Long.hashCode(value);
+	}
+
+	@Override
+	public DCMessage cloneChangeDestinationName(String destinationName) {
+		return new LongDataMessage(context, destinationName, value);
+	}
+
+	@Override
+	public String toString() {
+		return "LongDataMessage [context=" + context + ", " + dataName + "=" + value + "]";
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 	Generates unique long ids without shared counter update on every call.
+ * Each thread takes block of ids from shared counter and hands them out locally,
+ * so shared counter is touched only once per blockSize ids.
+ * 
+ * Ids are unique, but not ordered between threads.
+ * 
+ * Optional node id is put into high bits, so ids generated by different processes
+ * do not collide when each process has its own node id:
+ * <pre>
+ *  63     sign, always 0
+ *  62..48 node id (0..32767)
+ *  47..0  sequence
+ * </pre>
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LongIdGenerator {
+
+	public static final int NODE_SHIFT 			= 48;
+	public static final int MAX_NODE_ID 		= (1 << 15) - 1;
+	public static final long MAX_SEQUENCE 		= (1L << NODE_SHIFT) - 1;
+	public static final int DEFAULT_BLOCK_SIZE 	= 1024;
+
+	private static final class Block {
+		long next;
+		long limit;
+	}
+
+	public final int nodeId;
+	public final int blockSize;
+	private final long nodePrefix;
+	private final AtomicLong blocks = new AtomicLong(0);
+	private final ThreadLocal<Block> threadBlock = ThreadLocal.withInitial(Block::new);
+
+	public LongIdGenerator() {
+		this(0, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param nodeId		process or node id, 0..MAX_NODE_ID
+	 * @param blockSize		how many ids thread takes at once
+	 */
+	public LongIdGenerator(int nodeId, int blockSize) {
+		super();
+		if (nodeId<0 || nodeId>MAX_NODE_ID)
+			throw new IllegalArgumentException("LongIdGenerator nodeId should be 0.." + MAX_NODE_ID + ", but is " + nodeId);
+		if (blockSize<1)
+			throw new IllegalArgumentException("LongIdGenerator blockSize should be positive, but is " + blockSize);
+
+		this.nodeId = nodeId;
+		this.blockSize = blockSize;
+		this.nodePrefix = ((long) nodeId) << NODE_SHIFT;
+	}
+
+	/**
+	 * @return next unique id, always positive
+	 */
+	public long nextId() {
+		Block block = threadBlock.get();
+		if (block.next==block.limit) {
+			// id 0 is not used, it means "no id" in binary formats
+			long start = blocks.getAndAdd(blockSize) + 1;
+			if (start + blockSize - 1 > MAX_SEQUENCE)
+				throw new IllegalStateException("LongIdGenerator sequence exhausted for node " + nodeId);
+			block.next = start;
+			block.limit = start + blockSize;
+		}
+		return nodePrefix | block.next++;
+	}
+
+	public LongUniqueId newId() {
+		return new LongUniqueId(nextId());
+	}
+
+	public static int nodeId(long id) {
+		return (int) (id >>> NODE_SHIFT);
+	}
+
+	@Override
+	public String toString() {
+		return "LongIdGenerator [nodeId=" + nodeId + ", blockSize=" + blockSize + "]";
+	}
+}
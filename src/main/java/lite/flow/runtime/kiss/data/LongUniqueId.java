@@ -15,10 +15,23 @@
  */
 package lite.flow.runtime.kiss.data;
 
+import java.io.Serializable;
+
 import lite.flow.util.UniqueId;
 
-public class LongUniqueId implements UniqueId {
+/**
+ * 	Primitive long id. String form is created once, on first use.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LongUniqueId implements UniqueId, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	public final long id;
+	// racy single check, same value may be computed more than once
+	private transient String idValue;
 
 	public LongUniqueId(long id) {
 		super();
@@ -33,7 +46,26 @@ public class LongUniqueId implements UniqueId {
 
 	@Override
 	public String getIdValue() {
-		return String.valueOf(id);
+		String value = idValue;
+		if (value==null) {
+			value = String.valueOf(id);
+			idValue = value;
+		}
+		return value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(id);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof LongUniqueId))
+			return false;
+		return id == ((LongUniqueId) obj).id;
 	}
 
 	@Override
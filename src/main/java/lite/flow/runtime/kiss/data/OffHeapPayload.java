@@ -0,0 +1,142 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 	Large payload kept in direct (off heap) memory and passed by reference between activities.
+ * Payload is reference counted, when last reference is released memory is returned to allocator
+ * and payload can not be used any more.
+ * 
+ * Ownership rules:
+ * <ul>
+ * <li>new payload has one reference, owned by creator</li>
+ * <li>emit transfers caller reference, DistributorOutput retains one reference per destination which accepted message</li>
+ * <li>entry point arguments are released by runtime after method invocation, 
+ * 		component which emits or keeps argument payload must retain it first</li>
+ * </ul>
+ * 
+ * toString does not render payload content, so log events which hold payload are cheap.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public final class OffHeapPayload {
+
+	private final ByteBuffer 		memory;
+	private final int 				length;
+	private final PayloadAllocator 	allocator;
+	private final AtomicInteger 	refCnt = new AtomicInteger(1);
+
+	OffHeapPayload(ByteBuffer memory, int length, PayloadAllocator allocator) {
+		super();
+		this.memory = memory;
+		this.length = length;
+		this.allocator = allocator;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public int refCount() {
+		return refCnt.get();
+	}
+
+	/**
+	 * @return new read only view from 0 to length, view is valid until payload is freed
+	 */
+	public ByteBuffer buffer() {
+		ensureAccessible();
+		ByteBuffer view = memory.duplicate();
+		view.clear().limit(length);
+		return view.asReadOnlyBuffer();
+	}
+
+	/**
+	 * 	Writable view, only creator should write and only before payload is emitted.
+	 */
+	public ByteBuffer writableBuffer() {
+		ensureAccessible();
+		ByteBuffer view = memory.duplicate();
+		view.clear().limit(length);
+		return view;
+	}
+
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[length];
+		buffer().get(bytes);
+		return bytes;
+	}
+
+	public OffHeapPayload retain() {
+		return retain(1);
+	}
+
+	public OffHeapPayload retain(int increment) {
+		if (increment<0)
+			throw new IllegalArgumentException("OffHeapPayload.retain increment should not be negative, but is " + increment);
+		for (;;) {
+			int current = refCnt.get();
+			if (current<=0)
+				throw new IllegalStateException("OffHeapPayload is already freed");
+			if (refCnt.compareAndSet(current, current + increment))
+				return this;
+		}
+	}
+
+	/**
+	 * @return true when this was last reference and memory is freed
+	 */
+	public boolean release() {
+		return release(1);
+	}
+
+	public boolean release(int decrement) {
+		if (decrement<=0)
+			return false;
+		int remaining = refCnt.addAndGet(-decrement);
+		if (remaining<0)
+			throw new IllegalStateException("OffHeapPayload released more times than retained, refCount=" + remaining);
+		if (remaining==0) {
+			allocator.free(memory);
+			return true;
+		}
+		return false;
+	}
+
+	private void ensureAccessible() {
+		if (refCnt.get()<=0)
+			throw new IllegalStateException("OffHeapPayload is already freed");
+	}
+
+	public static void retainIfPayload(Object obj, int increment) {
+		if (obj instanceof OffHeapPayload && increment>0)
+			((OffHeapPayload) obj).retain(increment);
+	}
+
+	public static void releaseIfPayload(Object obj, int decrement) {
+		if (obj instanceof OffHeapPayload)
+			((OffHeapPayload) obj).release(decrement);
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapPayload [length=" + length + ", refCnt=" + refCnt.get() + "]";
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 	Allocates direct memory for {@link OffHeapPayload}.
+ * Java 8 has no public API to free direct buffer, so freed buffers are kept in 
+ * power of two size classes and reused. Buffers above maxPooledBytes are left to GC.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class PayloadAllocator {
+
+	public static final PayloadAllocator DEFAULT = new PayloadAllocator(256L * 1024 * 1024);
+
+	private static final int MIN_SIZE_CLASS = 10;	// 1 KB
+	private static final int MAX_SIZE_CLASS = 30;	// 1 GB
+
+	private final long maxPooledBytes;
+	private final AtomicLong pooledBytes = new AtomicLong();
+	private final AtomicLong allocatedBytes = new AtomicLong();
+	@SuppressWarnings("unchecked")
+	private final ConcurrentLinkedQueue<ByteBuffer>[] freeBuffers = new ConcurrentLinkedQueue[MAX_SIZE_CLASS + 1];
+
+	/**
+	 * @param maxPooledBytes	maximum size of freed buffers kept for reuse
+	 */
+	public PayloadAllocator(long maxPooledBytes) {
+		super();
+		this.maxPooledBytes = maxPooledBytes;
+		for (int i = MIN_SIZE_CLASS; i <= MAX_SIZE_CLASS; i++)
+			freeBuffers[i] = new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * @return payload with given length, content is not cleared
+	 */
+	public OffHeapPayload allocate(int length) {
+		if (length<0)
+			throw new IllegalArgumentException("PayloadAllocator.allocate length should not be negative, but is " + length);
+
+		int sizeClass = sizeClass(length);
+		ByteBuffer memory = freeBuffers[sizeClass].poll();
+		if (memory!=null)
+			pooledBytes.addAndGet(-memory.capacity());
+		else {
+			memory = ByteBuffer.allocateDirect(1 << sizeClass);
+			allocatedBytes.addAndGet(memory.capacity());
+		}
+		return new OffHeapPayload(memory, length, this);
+	}
+
+	public OffHeapPayload copyOf(byte[] bytes) {
+		OffHeapPayload payload = allocate(bytes.length);
+		payload.writableBuffer().put(bytes);
+		return payload;
+	}
+
+	/**
+	 * 	Copies remaining bytes of source, source position is not changed.
+	 */
+	public OffHeapPayload copyOf(ByteBuffer source) {
+		OffHeapPayload payload = allocate(source.remaining());
+		payload.writableBuffer().put(source.duplicate());
+		return payload;
+	}
+
+	void free(ByteBuffer memory) {
+		int capacity = memory.capacity();
+		if (pooledBytes.addAndGet(capacity)>maxPooledBytes) {
+			pooledBytes.addAndGet(-capacity);
+			allocatedBytes.addAndGet(-capacity);
+			return;
+		}
+		freeBuffers[Integer.numberOfTrailingZeros(capacity)].offer(memory);
+	}
+
+	/**
+	 * @return direct memory allocated and not returned to GC, including pooled buffers
+	 */
+	public long allocatedBytes() {
+		return allocatedBytes.get();
+	}
+
+	public long pooledBytes() {
+		return pooledBytes.get();
+	}
+
+	private static int sizeClass(int length) {
+		int sizeClass = length<=1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+		if (sizeClass>MAX_SIZE_CLASS)
+			throw new IllegalArgumentException("PayloadAllocator length too big: " + length);
+		return Math.max(sizeClass, MIN_SIZE_CLASS);
+	}
+
+	@Override
+	public String toString() {
+		return "PayloadAllocator [allocatedBytes=" + allocatedBytes + ", pooledBytes=" + pooledBytes + ", maxPooledBytes=" + maxPooledBytes + "]";
+	}
+}
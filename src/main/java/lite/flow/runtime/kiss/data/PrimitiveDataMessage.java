@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import lite.flow.api.activity.RequestContext;
+
+/**
+ * 	Data message with primitive int, long or double value, numeric data is not boxed.
+ * Value can be read as bits of any kind, so message of one kind can be passed to input of other kind.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public abstract class PrimitiveDataMessage implements DCMessage {
+
+	/**
+	 * 	Primitive value kind. Values are carried as long bits: 
+	 * int and long as long value, double as raw long bits.
+	 */
+	public enum Kind {
+		INT(int.class),
+		LONG(long.class),
+		DOUBLE(double.class);
+
+		public final Class<?> type;
+
+		private Kind(Class<?> type) {
+			this.type = type;
+		}
+
+		/**
+		 * @return kind of primitive type or null when type is not int, long or double
+		 */
+		public static Kind of(Class<?> type) {
+			for (Kind kind : values())
+				if (kind.type==type)
+					return kind;
+			return null;
+		}
+
+		public Object box(long bits) {
+			switch (this) {
+			case INT:		return Integer.valueOf((int) bits);
+			case LONG:		return Long.valueOf(bits);
+			default:		return Double.valueOf(Double.longBitsToDouble(bits));
+			}
+		}
+
+		/**
+		 * 	Boxed number to bits of this kind, unboxes only.
+		 */
+		public long toBits(Object value) {
+			if (!(value instanceof Number))
+				throw new IllegalArgumentException(this + " value should be Number, but is " + value);
+
+			Number number = (Number) value;
+			switch (this) {
+			case INT:		return number.intValue();
+			case LONG:		return number.longValue();
+			default:		return Double.doubleToRawLongBits(number.doubleValue());
+			}
+		}
+	}
+
+	public final RequestContext context;
+	public final String	 		dataName;
+
+	public PrimitiveDataMessage(RequestContext context, String dataName) {
+		super();
+		this.context = context;
+		this.dataName = dataName;
+	}
+
+	public static PrimitiveDataMessage of(Kind kind, RequestContext context, String dataName, long bits) {
+		switch (kind) {
+		case INT:		return new IntDataMessage(context, dataName, (int) bits);
+		case LONG:		return new LongDataMessage(context, dataName, bits);
+		default:		return new DoubleDataMessage(context, dataName, Double.longBitsToDouble(bits));
+		}
+	}
+
+	abstract public Kind kind();
+
+	/**
+	 * @return value converted to given kind bits
+	 */
+	abstract public long bitsAs(Kind kind);
+
+	abstract public Object boxed();
+
+	/**
+	 * @return same as boxed().hashCode(), but without boxing
+	 */
+	abstract public int valueHashCode();
+
+	@Override
+	public DCType getDCType() {
+		return DCType.PrimitiveData;
+	}
+
+	@Override
+	public RequestContext getContext() {
+		return context;
+	}
+
+	/**
+	 * 	Boxed copy for activities which accept only DataMessage.
+	 */
+	public DataMessage<Object> toDataMessage() {
+		return new DataMessage<>(context, dataName, boxed());
+	}
+}
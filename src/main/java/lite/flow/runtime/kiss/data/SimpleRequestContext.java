@@ -15,7 +15,8 @@
  */
 package lite.flow.runtime.kiss.data;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 import lite.flow.api.activity.RequestContext;
 import lite.flow.util.UniqueId;
@@ -26,15 +27,38 @@ import lite.flow.util.UniqueId;
  * 
  * @author ToivoAdams
  */
-public class SimpleRequestContext implements RequestContext {
+public class SimpleRequestContext implements RequestContext, DeadlineAware, Serializable {
 
-	static public final AtomicLong idgen = new AtomicLong(0);
+	private static final long serialVersionUID = 1L;
+
+	static public final LongIdGenerator idgen = new LongIdGenerator();
 	
 	public final UniqueId requestId;
+	public final long deadline;
 
 	public SimpleRequestContext() {
+		this(NO_DEADLINE);
+	}
+
+	/**
+	 * @param deadline	System.currentTimeMillis based deadline or NO_DEADLINE
+	 */
+	public SimpleRequestContext(long deadline) {
 		super();
-		this.requestId = new LongUniqueId(idgen.incrementAndGet());
+		this.requestId = idgen.newId();
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return context whose deadline is given time from now
+	 */
+	public static SimpleRequestContext withTimeout(long timeout, TimeUnit unit) {
+		return new SimpleRequestContext(System.currentTimeMillis() + unit.toMillis(timeout));
+	}
+
+	@Override
+	public long getDeadline() {
+		return deadline;
 	}
 
 	@Override
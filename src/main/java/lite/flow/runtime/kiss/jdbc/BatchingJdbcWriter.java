@@ -0,0 +1,286 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * 	Runtime provided JDBC resource which coalesces write statements of many in-flight requests 
+ * into JDBC batches and commits them together (group commit).
+ * 
+ * Batch is executed when it has maxBatchSize statements or when oldest statement has waited maxDelay.
+ * Consecutive statements with same SQL share one PreparedStatement batch, 
+ * all batches collected together are committed in one transaction.
+ * When group fails, statements are retried one by one, so only failing request gets failure.
+ * 
+ * Register it as flow resource, component gets it by constructor parameter name:
+ * <pre>
+ *	executionContext.addResource("batchWriter", new BatchingJdbcWriter(dataSource, 100, 5, TimeUnit.MILLISECONDS));
+ * </pre>
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class BatchingJdbcWriter implements Closeable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	static final class Statement {
+		final String 	sql;
+		final Object[] 	params;
+		final long 		enqueueTime = System.nanoTime();
+		final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+		Statement(String sql, Object[] params) {
+			this.sql = sql;
+			this.params = params;
+		}
+	}
+
+	private final DataSource 	dataSource;
+	private final int 			maxBatchSize;
+	private final long 			maxDelayNanos;
+	private final BlockingQueue<Statement> pending;
+	private final Thread 		writer;
+	private volatile boolean 	closed;
+	private volatile boolean 	stopped;	// writer thread does not take statements any more
+
+	// metrics
+	public final AtomicLong statements 	= new AtomicLong();
+	public final AtomicLong batches 	= new AtomicLong();
+	public final AtomicLong commits 	= new AtomicLong();
+	public final AtomicLong failures 	= new AtomicLong();
+	public final AtomicLong retries 	= new AtomicLong();
+
+	public BatchingJdbcWriter(DataSource dataSource, int maxBatchSize, long maxDelay, TimeUnit unit) {
+		this(dataSource, maxBatchSize, maxDelay, unit, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param maxBatchSize		statements in one group commit
+	 * @param maxDelay			how long first statement of group may wait for others
+	 * @param queueCapacity		pending statements, execute fails when queue is full
+	 */
+	public BatchingJdbcWriter(DataSource dataSource, int maxBatchSize, long maxDelay, TimeUnit unit, int queueCapacity) {
+		super();
+		requireNonNull(dataSource, "BatchingJdbcWriter dataSource should not be null");
+		if (maxBatchSize<1)
+			throw new IllegalArgumentException("BatchingJdbcWriter maxBatchSize should be positive, but is " + maxBatchSize);
+
+		this.dataSource = dataSource;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.pending = new ArrayBlockingQueue<>(queueCapacity);
+		this.writer = new Thread(this::writeLoop, "BatchingJdbcWriter");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * 	Queues write statement (insert, update, delete).
+	 * 
+	 * @return future completed with update count after commit, or with failure
+	 */
+	public CompletableFuture<Integer> execute(String sql, Object... params) {
+		requireNonNull(sql, "BatchingJdbcWriter.execute sql should not be null");
+		Statement statement = new Statement(sql, params);
+		if (closed)
+			statement.result.completeExceptionally(new SQLException("BatchingJdbcWriter is closed"));
+		else if (!pending.offer(statement))
+			statement.result.completeExceptionally(new SQLException("BatchingJdbcWriter queue is full"));
+		else if (stopped && pending.remove(statement))
+			// queued after writer drained queue
+			statement.result.completeExceptionally(new SQLException("BatchingJdbcWriter is closed"));
+		return statement.result;
+	}
+
+	/**
+	 * 	Blocking variant for components which need result before they continue.
+	 * 
+	 * @return update count
+	 */
+	public int executeAndWait(String sql, Object... params) throws SQLException, InterruptedException {
+		try {
+			return execute(sql, params).get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException)
+				throw (SQLException) e.getCause();
+			throw new SQLException(e.getCause());
+		}
+	}
+
+	private void writeLoop() {
+		List<Statement> group = new ArrayList<>(maxBatchSize);
+		while (!closed || !pending.isEmpty()) {
+			try {
+				collectGroup(group);
+			} catch (InterruptedException e) {
+				// already collected statements are written too
+				closed = true;
+			}
+			if (group.isEmpty())
+				continue;
+			try {
+				writeGroup(group);
+			} catch (RuntimeException e) {
+				for (Statement statement : group)
+					statement.result.completeExceptionally(e);
+			} finally {
+				group.clear();
+			}
+		}
+
+		stopped = true;
+		// statements queued while writer was stopping
+		Statement statement;
+		while ((statement = pending.poll())!=null)
+			statement.result.completeExceptionally(new SQLException("BatchingJdbcWriter is closed"));
+	}
+
+	private void collectGroup(List<Statement> group) throws InterruptedException {
+		Statement first = pending.poll(100, TimeUnit.MILLISECONDS);
+		if (first==null)
+			return;
+		group.add(first);
+		long deadline = first.enqueueTime + maxDelayNanos;
+		while (group.size()<maxBatchSize) {
+			long wait = deadline - System.nanoTime();
+			Statement next = wait>0 ? pending.poll(wait, TimeUnit.NANOSECONDS) : pending.poll();
+			if (next==null)
+				break;
+			group.add(next);
+		}
+	}
+
+	private void writeGroup(List<Statement> group) {
+		statements.addAndGet(group.size());
+		int[] counts = new int[group.size()];
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				int start = 0;
+				while (start<group.size()) {
+					// consecutive statements with same sql share one batch
+					String sql = group.get(start).sql;
+					int end = start + 1;
+					while (end<group.size() && sql.equals(group.get(end).sql))
+						end++;
+					executeBatch(connection, group, start, end, counts);
+					start = end;
+				}
+				connection.commit();
+				commits.incrementAndGet();
+			} catch (SQLException e) {
+				connection.rollback();
+				retryOneByOne(connection, group);
+				return;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			failures.addAndGet(group.size());
+			for (Statement statement : group)
+				statement.result.completeExceptionally(e);
+			return;
+		}
+
+		for (int i = 0; i < group.size(); i++)
+			group.get(i).result.complete(counts[i]);
+	}
+
+	private void executeBatch(Connection connection, List<Statement> group, int start, int end, int[] counts) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(group.get(start).sql)) {
+			for (int i = start; i < end; i++) {
+				setParameters(ps, group.get(i).params);
+				ps.addBatch();
+			}
+			int[] batchCounts = ps.executeBatch();
+			batches.incrementAndGet();
+			for (int i = start; i < end; i++)
+				counts[i] = i - start < batchCounts.length ? batchCounts[i - start] : PreparedStatement.SUCCESS_NO_INFO;
+		}
+	}
+
+	/**
+	 * 	Group failed, so find out which statements fail, each in own transaction.
+	 */
+	private void retryOneByOne(Connection connection, List<Statement> group) throws SQLException {
+		retries.incrementAndGet();
+		for (Statement statement : group) {
+			try (PreparedStatement ps = connection.prepareStatement(statement.sql)) {
+				setParameters(ps, statement.params);
+				int count = ps.executeUpdate();
+				connection.commit();
+				commits.incrementAndGet();
+				statement.result.complete(count);
+			} catch (SQLException e) {
+				connection.rollback();
+				failures.incrementAndGet();
+				statement.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	private static void setParameters(PreparedStatement ps, Object[] params) throws SQLException {
+		if (params==null)
+			return;
+		for (int i = 0; i < params.length; i++)
+			ps.setObject(i + 1, params[i]);
+	}
+
+	/**
+	 * @return average number of statements per commit
+	 */
+	public double averageGroupSize() {
+		long nrOfCommits = commits.get();
+		return nrOfCommits==0 ? 0 : (double) statements.get() / nrOfCommits;
+	}
+
+	/**
+	 * 	Stops accepting statements, pending statements are written before writer thread stops.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BatchingJdbcWriter [maxBatchSize=" + maxBatchSize + ", maxDelayNanos=" + maxDelayNanos + ", statements=" + statements 
+				+ ", batches=" + batches + ", commits=" + commits + ", failures=" + failures + ", retries=" + retries + "]";
+	}
+}
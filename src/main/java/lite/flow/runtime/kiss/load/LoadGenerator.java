@@ -0,0 +1,235 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.load;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import java.util.logging.Level;
+
+import lite.flow.api.flow.define.Flow;
+import lite.flow.runtime.kiss.Consumer;
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.RunnableActivity;
+import lite.flow.runtime.kiss.RunnableFlow;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.simple.SimpleLogFactory;
+import lite.log.span.LatencyHistogram;
+
+/**
+ * 	Open loop load generator, requests are sent at fixed rate regardless of how fast flow responds.
+ * 
+ * Latency is measured from intended send time (not actual send time), 
+ * so when sender falls behind schedule or flow stalls, 
+ * waiting requests are not omitted from measurement (coordinated omission correction).
+ * 
+ * Requests which flow rejects (enqueue returns false) are counted as dropped,
+ * requests without response before drain timeout are counted as lost.
+ * 
+ * Usage: LoadGenerator flowClass inputName outputName ratePerSecond durationSeconds [warmupSeconds] [inputTemplate]
+ * where flowClass has static field flow and {i} in inputTemplate is replaced by request number.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LoadGenerator {
+
+	public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * 	Result of one run, latencies in microseconds.
+	 */
+	public static final class LoadResult {
+		public final long 	sent;
+		public final long 	completed;
+		public final long 	dropped;
+		public final long 	lost;
+		public final double targetRate;
+		public final double throughput;	// completed per second
+		public final double mean;
+		public final long 	p50;
+		public final long 	p90;
+		public final long 	p99;
+		public final long 	p999;
+		public final long 	max;
+
+		LoadResult(long sent, long completed, long dropped, long lost, double targetRate, double throughput, LatencyHistogram histogram) {
+			this.sent = sent;
+			this.completed = completed;
+			this.dropped = dropped;
+			this.lost = lost;
+			this.targetRate = targetRate;
+			this.throughput = throughput;
+			this.mean = histogram.getMean();
+			this.p50 = histogram.percentile(50);
+			this.p90 = histogram.percentile(90);
+			this.p99 = histogram.percentile(99);
+			this.p999 = histogram.percentile(99.9);
+			this.max = histogram.getMax();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("sent=%d completed=%d dropped=%d lost=%d targetRate=%.1f/s throughput=%.1f/s%n"
+					+ "latency us: mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d"
+					, sent, completed, dropped, lost, targetRate, throughput, mean, p50, p90, p99, p999, max);
+		}
+	}
+
+	public final RunnableActivity 		target;
+	public final String 				inputName;
+	public final LongFunction<Object> 	inputGenerator;
+	public final long 					drainTimeoutMillis;
+
+	// intended send time (nanoTime) of requests waiting for response
+	private final Map<UniqueId, Long> pending = new ConcurrentHashMap<>();
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	private final AtomicLong completed = new AtomicLong();
+
+	/**
+	 * @param target			activity (flow) which is already running
+	 * @param inputName			target input name
+	 * @param outputName		target output name, whose messages complete requests
+	 * @param inputGenerator	creates input data for request number
+	 */
+	public LoadGenerator(RunnableActivity target, String inputName, String outputName, LongFunction<Object> inputGenerator) {
+		this(target, inputName, outputName, inputGenerator, DEFAULT_DRAIN_TIMEOUT_MILLIS);
+	}
+
+	public LoadGenerator(RunnableActivity target, String inputName, String outputName, LongFunction<Object> inputGenerator, long drainTimeoutMillis) {
+		super();
+		requireNonNull(target, 			"LoadGenerator target should not be null");
+		requireNonNull(inputName, 		"LoadGenerator inputName should not be null");
+		requireNonNull(outputName, 		"LoadGenerator outputName should not be null");
+		requireNonNull(inputGenerator, 	"LoadGenerator inputGenerator should not be null");
+		this.target = target;
+		this.inputName = inputName;
+		this.inputGenerator = inputGenerator;
+		this.drainTimeoutMillis = drainTimeoutMillis;
+		target.addDestination(outputName, new Consumer() {
+			@Override
+			public boolean enqueue(DCMessage dcmsg) {
+				complete(dcmsg, System.nanoTime());
+				return true;
+			}
+
+			@Override
+			public boolean canBeEnqueued() {
+				return true;
+			}
+		}, "loadResult");
+	}
+
+	private void complete(DCMessage dcmsg, long completeNanos) {
+		if (dcmsg.getContext()==null)
+			return;
+		Long intendedNanos = pending.remove(dcmsg.getContext().getRequestId());
+		if (intendedNanos==null)
+			return;
+		completed.incrementAndGet();
+		synchronized (histogram) {
+			histogram.record(TimeUnit.NANOSECONDS.toMicros(completeNanos - intendedNanos));
+		}
+	}
+
+	/**
+	 * 	Sends requests at given rate for given time, then waits for outstanding responses.
+	 * Not thread safe, runs are sequential.
+	 * 
+	 * @param ratePerSecond	target (intended) request rate
+	 */
+	public LoadResult run(double ratePerSecond, long duration, TimeUnit unit) throws InterruptedException {
+		if (ratePerSecond<=0)
+			throw new IllegalArgumentException("LoadGenerator ratePerSecond should be positive, but is " + ratePerSecond);
+		pending.clear();
+		completed.set(0);
+		synchronized (histogram) {
+			histogram.reset();
+		}
+
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+		long count = (long) (unit.toNanos(duration) / (double) intervalNanos);
+		long sent = 0;
+		long dropped = 0;
+		long startNanos = System.nanoTime();
+		for (long i = 0; i < count; i++) {
+			long intendedNanos = startNanos + i*intervalNanos;
+			long waitNanos;
+			while ((waitNanos = intendedNanos - System.nanoTime())>0)
+				LockSupport.parkNanos(waitNanos);
+			if (Thread.interrupted())
+				throw new InterruptedException();
+
+			SimpleRequestContext ctx = new SimpleRequestContext();
+			// registered before enqueue, response may arrive before enqueue returns
+			pending.put(ctx.getRequestId(), intendedNanos);
+			sent++;
+			if (!target.enqueue(new DataMessage<>(ctx, inputName, inputGenerator.apply(i)))) {
+				pending.remove(ctx.getRequestId());
+				dropped++;
+			}
+		}
+		long sendEndNanos = System.nanoTime();
+
+		long drainEnd = System.currentTimeMillis() + drainTimeoutMillis;
+		while (!pending.isEmpty() && System.currentTimeMillis()<drainEnd)
+			Thread.sleep(10);
+		long lost = pending.size();
+		pending.clear();
+
+		double seconds = (Math.max(sendEndNanos, startNanos + count*intervalNanos) - startNanos) / 1e9;
+		synchronized (histogram) {
+			return new LoadResult(sent, completed.get(), dropped, lost, ratePerSecond, completed.get() / seconds, histogram);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length<5) {
+			System.err.println("Usage: LoadGenerator flowClass inputName outputName ratePerSecond durationSeconds [warmupSeconds] [inputTemplate]");
+			System.exit(1);
+		}
+		Flow flow = (Flow) Class.forName(args[0]).getField("flow").get(null);
+		String inputName = args[1];
+		String outputName = args[2];
+		double rate = Double.parseDouble(args[3]);
+		long seconds = Long.parseLong(args[4]);
+		long warmupSeconds = args.length>5 ? Long.parseLong(args[5]) : 0;
+		String template = args.length>6 ? args[6] : "{i}";
+
+		SimpleLogFactory logFactory = new SimpleLogFactory();
+		logFactory.logger().setLevel(Level.WARNING);
+		RunnableFlow runnableFlow = new RunnableFlow(1000, new FlowExecutionContext(flow, ""), logFactory, flow);
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		executorService.execute(runnableFlow);
+
+		LoadGenerator generator = new LoadGenerator(runnableFlow, inputName, outputName
+				, i -> template.replace("{i}", Long.toString(i)));
+		if (warmupSeconds>0)
+			System.out.println("warmup: " + generator.run(rate, warmupSeconds, TimeUnit.SECONDS));
+		System.out.println(generator.run(rate, seconds, TimeUnit.SECONDS));
+		System.exit(0);
+	}
+}
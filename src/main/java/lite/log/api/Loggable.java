@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.api;
+
+/**
+ * 	Object which carries its own logging context.
+ * 
+ * Modifier uses this to generate one logging subclass per class, 
+ * instead of one subclass per instance with context baked in.
+ * 
+ * Logging is skipped while getLogFactory returns null, 
+ * so {@link Log} methods called from constructor before log factory is assigned are not logged.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public interface Loggable {
+
+	public ExecutionContext getExecutionContext();
+
+	public LogFactory getLogFactory();
+}
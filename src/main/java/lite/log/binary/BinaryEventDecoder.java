@@ -0,0 +1,154 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.binary;
+
+import static lite.log.binary.EventRecordLayout.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.logging.Level;
+
+import lite.log.simple.StructFormatter;
+
+/**
+ * 	Offline decoder for segments written by {@link BinaryEventHandler}.
+ * Renders records using StructFormatter layout, optionally only records of one request.
+ *
+ * Usage: BinaryEventDecoder directory baseName [requestId]
+ *
+ * @author ToivoAdams
+ *
+ */
+public class BinaryEventDecoder {
+
+	public static final long ALL_REQUESTS = -1;
+
+	private final NameDictionary dictionary;
+	private final String lineSeparator = System.getProperty("line.separator");
+
+	public BinaryEventDecoder(NameDictionary dictionary) {
+		super();
+		this.dictionary = dictionary;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length<2) {
+			System.err.println("Usage: BinaryEventDecoder directory baseName [requestId]");
+			System.exit(1);
+		}
+
+		Path directory = Paths.get(args[0]);
+		String baseName = args[1];
+		long requestId = args.length>2 ? Long.parseLong(args[2]) : ALL_REQUESTS;
+
+		PrintWriter out = new PrintWriter(System.out);
+		int count = decode(directory, baseName, requestId, out);
+		out.flush();
+		System.err.println(count + " records");
+	}
+
+	/**
+	 * 	Decodes all segments of given baseName in sequence order.
+	 *
+	 * @param requestId		render only records of this request, or ALL_REQUESTS
+	 * @return number of rendered records
+	 */
+	public static int decode(Path directory, String baseName, long requestId, Appendable out) throws IOException {
+		BinaryEventDecoder decoder = new BinaryEventDecoder(NameDictionary.read(directory.resolve(dictionaryFileName(baseName))));
+		int count = 0;
+		for (int sequence = 1; ; sequence++) {
+			Path file = directory.resolve(segmentFileName(baseName, sequence));
+			if (!Files.exists(file))
+				break;
+			count += decoder.decodeSegment(file, requestId, out);
+		}
+		return count;
+	}
+
+	public int decodeSegment(Path file, long requestId, Appendable out) throws IOException {
+		MappedByteBuffer segment;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (segment.remaining()<HEADER_SIZE || segment.getInt()!=MAGIC)
+			throw new IOException("Not a binary event segment: " + file);
+		int version = segment.getInt();
+		int recordSize = segment.getInt();
+		segment.getInt();
+		if (version!=VERSION || recordSize!=RECORD_SIZE)
+			throw new IOException("Unsupported segment version " + version + " recordSize " + recordSize + ": " + file);
+
+		int count = 0;
+		while (segment.remaining()>=RECORD_SIZE) {
+			int position = segment.position();
+			if (segment.get(position)==TYPE_NONE)
+				break;	// rest of segment is not written
+
+			if (requestId==ALL_REQUESTS || segment.getLong(position+24)==requestId) {
+				out.append(render(segment));
+				count++;
+			} else
+				segment.position(position+RECORD_SIZE);
+		}
+		return count;
+	}
+
+	/**
+	 * 	Renders record at buffer current position and moves position to next record.
+	 */
+	public String render(ByteBuffer buffer) {
+		byte type 		= buffer.get();
+		byte flags 		= buffer.get();
+		buffer.getShort();
+		int level 		= buffer.getInt();
+		long millis 	= buffer.getLong();
+		long cid 		= buffer.getLong();
+		long rid 		= buffer.getLong();
+		int activityId 	= buffer.getInt();
+		int classId 	= buffer.getInt();
+		int methodId 	= buffer.getInt();
+		int hash 		= buffer.getInt();
+
+		StringBuilder sb = new StringBuilder(100);
+		StructFormatter.appendPrefix(sb, new Date(millis), Level.parse(String.valueOf(level)).getName()
+				, dictionary.name(classId), dictionary.name(methodId));
+
+		sb.append( String.format("%1$10s", dictionary.name(activityId)) );
+		sb.append(" ");
+		sb.append( String.format("%1$10s", rid==0 ? null : "rctx[rid=" + rid + "]") );
+		switch (type) {
+		case TYPE_START:	sb.append(" Start"); break;
+		case TYPE_END:		sb.append("   End"); break;
+		default:			sb.append("      "); break;
+		}
+		sb.append(cid);
+		sb.append(" ");
+		sb.append(hash==0 ? "NA" : "hash=" + Integer.toHexString(hash));
+		if ((flags & FLAG_THROWN)!=0)
+			sb.append(" thrown");
+		sb.append(lineSeparator);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.binary;
+
+import static lite.log.binary.EventRecordLayout.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import lite.flow.api.activity.RequestContext;
+import lite.log.api.ExecutionContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.EventsBase;
+import lite.log.api.event.MiddleEvent;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Writes StartEvent, MiddleEvent and EndEvent as fixed layout binary records
+ * to memory mapped rolling segment files. No text formatting is done at log time.
+ * Other log records are ignored.
+ *
+ * Use {@link BinaryEventDecoder} to render segments as text.
+ *
+ * @author ToivoAdams
+ *
+ */
+public class BinaryEventHandler extends Handler {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private final Path 				directory;
+	private final String 			baseName;
+	private final int 				segmentSize;
+	private final boolean 			payloadHash;
+	private final NameDictionary 	dictionary;
+	// activity name id by execution context, so context is not formatted for every event
+	private final Map<ExecutionContext,Integer> activityIds = new IdentityHashMap<>();
+
+	private int 				segmentSequence;
+	private MappedByteBuffer 	segment;
+
+	public BinaryEventHandler(Path directory, String baseName) throws IOException {
+		this(directory, baseName, DEFAULT_SEGMENT_SIZE, false);
+	}
+
+	/**
+	 * @param directory		segment and dictionary files location
+	 * @param baseName		segment files are named baseName-NNNNNN.seg
+	 * @param segmentSize	segment file size in bytes
+	 * @param payloadHash	when true, hash of input arguments / output values is recorded
+	 */
+	public BinaryEventHandler(Path directory, String baseName, int segmentSize, boolean payloadHash) throws IOException {
+		super();
+		if (segmentSize < HEADER_SIZE + RECORD_SIZE)
+			throw new IllegalArgumentException("BinaryEventHandler segmentSize too small: " + segmentSize);
+
+		this.directory = directory;
+		this.baseName = baseName;
+		this.segmentSize = segmentSize;
+		this.payloadHash = payloadHash;
+
+		Files.createDirectories(directory);
+		this.dictionary = new NameDictionary(directory.resolve(dictionaryFileName(baseName)));
+		this.segmentSequence = lastSegmentSequence();
+		roll();
+	}
+
+	@Override
+	public synchronized void publish(LogRecord record) {
+		if (!(record instanceof EventsBase) || !isLoggable(record) || segment==null)
+			return;
+
+		try {
+			write((EventsBase) record);
+		} catch (IOException | RuntimeException e) {
+			reportError("BinaryEventHandler write failed", e, ErrorManager.WRITE_FAILURE);
+		}
+	}
+
+	private void write(EventsBase event) throws IOException {
+		byte type;
+		RequestContext requestContext;
+		ExecutionContext executionContext;
+		int hash = 0;
+
+		if (event instanceof StartEvent) {
+			StartEvent startEvent = (StartEvent) event;
+			type = TYPE_START;
+			requestContext = startEvent.requestContext;
+			executionContext = startEvent.executionContext;
+			if (payloadHash && startEvent.argValues!=null)
+				hash = Arrays.deepHashCode(startEvent.argValues);
+		} else if (event instanceof EndEvent) {
+			EndEvent endEvent = (EndEvent) event;
+			type = TYPE_END;
+			requestContext = endEvent.requestContext;
+			executionContext = endEvent.executionContext;
+			if (payloadHash && endEvent.outputValues!=null)
+				hash = Arrays.deepHashCode(endEvent.outputValues);
+		} else if (event instanceof MiddleEvent) {
+			MiddleEvent middleEvent = (MiddleEvent) event;
+			type = TYPE_MIDDLE;
+			requestContext = middleEvent.requestContext;
+			executionContext = middleEvent.executionContext;
+		} else
+			return;
+
+		int activityId = activityId(executionContext);
+		int classId = dictionary.intern(event.getSourceClassName());
+		int methodId = dictionary.intern(event.getSourceMethodName());
+		long requestId = requestContext==null ? 0 : idToLong(requestContext.getRequestId());
+
+		if (segment.remaining() < RECORD_SIZE)
+			roll();
+
+		segment.put(type);
+		segment.put(event.getThrown()==null ? 0 : FLAG_THROWN);
+		segment.putShort((short) 0);
+		segment.putInt(event.getLevel().intValue());
+		segment.putLong(event.getMillis());
+		segment.putLong(idToLong(event.eventCorrelationId));
+		segment.putLong(requestId);
+		segment.putInt(activityId);
+		segment.putInt(classId);
+		segment.putInt(methodId);
+		segment.putInt(hash);
+	}
+
+	private int activityId(ExecutionContext executionContext) throws IOException {
+		if (executionContext==null)
+			return dictionary.intern(null);
+		Integer id = activityIds.get(executionContext);
+		if (id==null) {
+			id = dictionary.intern(executionContext.toString());
+			activityIds.put(executionContext, id);
+		}
+		return id;
+	}
+
+	private void roll() throws IOException {
+		if (segment!=null)
+			segment.force();
+
+		segmentSequence++;
+		Path file = directory.resolve(segmentFileName(baseName, segmentSequence));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// mapping stays valid after channel is closed
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segment.putInt(MAGIC);
+		segment.putInt(VERSION);
+		segment.putInt(RECORD_SIZE);
+		segment.putInt(0);
+	}
+
+	private int lastSegmentSequence() {
+		int last = 0;
+		while (Files.exists(directory.resolve(segmentFileName(baseName, last+1))))
+			last++;
+		return last;
+	}
+
+	@Override
+	public synchronized void flush() {
+		if (segment!=null)
+			segment.force();
+	}
+
+	@Override
+	public synchronized void close() throws SecurityException {
+		flush();
+		segment = null;
+		try {
+			dictionary.close();
+		} catch (IOException e) {
+			reportError("BinaryEventHandler close failed", e, ErrorManager.CLOSE_FAILURE);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.binary;
+
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.util.UniqueId;
+
+/**
+ * 	Fixed layout of binary event record and segment header.
+ *
+ * Record (48 bytes, big endian):
+ * <pre>
+ *  0  byte   event type (0 means end of written data)
+ *  1  byte   flags
+ *  2  short  reserved
+ *  4  int    level
+ *  8  long   timestamp millis
+ * 16  long   event correlation id
+ * 24  long   request id (0 when no request context)
+ * 32  int    activity name id (execution context)
+ * 36  int    source class name id
+ * 40  int    source method name id
+ * 44  int    payload hash (0 when not recorded)
+ * </pre>
+ * Name ids refer to entries in dictionary file, see {@link NameDictionary}.
+ *
+ * @author ToivoAdams
+ *
+ */
+public final class EventRecordLayout {
+
+	public static final int MAGIC 			= 0x4C46424C;	// "LFBL"
+	public static final int VERSION 		= 1;
+	public static final int HEADER_SIZE 	= 16;
+	public static final int RECORD_SIZE 	= 48;
+
+	public static final byte TYPE_NONE 		= 0;
+	public static final byte TYPE_START 	= 1;
+	public static final byte TYPE_MIDDLE 	= 2;
+	public static final byte TYPE_END 		= 3;
+
+	public static final byte FLAG_THROWN 	= 1;
+
+	public static final String SEGMENT_SUFFIX 	 = ".seg";
+	public static final String DICTIONARY_SUFFIX = ".dict";
+
+	private EventRecordLayout() {
+	}
+
+	public static String segmentFileName(String baseName, int sequence) {
+		return String.format("%s-%06d%s", baseName, sequence, SEGMENT_SUFFIX);
+	}
+
+	public static String dictionaryFileName(String baseName) {
+		return baseName + DICTIONARY_SUFFIX;
+	}
+
+	/**
+	 * 	Binary log stores ids as primitive long.
+	 * LongUniqueId is used as is, other ids are parsed or hashed.
+	 */
+	public static long idToLong(UniqueId id) {
+		if (id==null)
+			return 0;
+		if (id instanceof LongUniqueId)
+			return ((LongUniqueId) id).id;
+
+		String value = id.getIdValue();
+		if (value==null)
+			return 0;
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return value.hashCode();
+		}
+	}
+
+	public static String typeName(byte type) {
+		switch (type) {
+		case TYPE_START:	return "Start";
+		case TYPE_MIDDLE:	return "Middle";
+		case TYPE_END:		return "End";
+		default:			return "Unknown";
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 	Interned names (activity, class and method names) for binary event log.
+ * Each new name is appended to dictionary file as line "id<TAB>name",
+ * so records itself contains only int ids.
+ * Id 0 is reserved for null name.
+ *
+ * @author ToivoAdams
+ *
+ */
+public class NameDictionary implements Closeable {
+
+	private final Map<String,Integer> ids = new HashMap<>();
+	private final List<String> names = new ArrayList<>();
+	private final Writer writer;
+
+	/**
+	 * 	Opens dictionary for writing, existing entries are loaded so ids stay stable over restarts.
+	 */
+	public NameDictionary(Path dictionaryFile) throws IOException {
+		names.add(null);
+		if (Files.exists(dictionaryFile))
+			load(dictionaryFile);
+		this.writer = Files.newBufferedWriter(dictionaryFile, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private NameDictionary() {
+		names.add(null);
+		this.writer = null;
+	}
+
+	/**
+	 * 	Read only dictionary for decoding.
+	 */
+	public static NameDictionary read(Path dictionaryFile) throws IOException {
+		NameDictionary dictionary = new NameDictionary();
+		if (Files.exists(dictionaryFile))
+			dictionary.load(dictionaryFile);
+		return dictionary;
+	}
+
+	private void load(Path dictionaryFile) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(dictionaryFile, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				if (tab<1)
+					continue;
+				int id = Integer.parseInt(line.substring(0, tab));
+				String name = line.substring(tab+1);
+				while (names.size()<=id)
+					names.add(null);
+				names.set(id, name);
+				ids.put(name, id);
+			}
+		}
+	}
+
+	public synchronized int intern(String name) throws IOException {
+		if (name==null)
+			return 0;
+
+		Integer id = ids.get(name);
+		if (id!=null)
+			return id;
+
+		if (writer==null)
+			throw new IllegalStateException("NameDictionary is read only");
+
+		int newId = names.size();
+		// names are single line by contract
+		String stored = name.replace('\n', ' ').replace('\r', ' ');
+		names.add(stored);
+		ids.put(name, newId);
+		writer.write(newId + "\t" + stored + "\n");
+		writer.flush();
+		return newId;
+	}
+
+	public synchronized String name(int id) {
+		if (id<=0 || id>=names.size())
+			return null;
+		return names.get(id);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer!=null)
+			writer.close();
+	}
+}
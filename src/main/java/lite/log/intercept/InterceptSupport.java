@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.intercept;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.log.api.ExecutionContext;
+import lite.log.api.LogFactory;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Common part of interceptors and woven code: logs StartEvent, calls original method and logs EndEvent.
+ * 
+ * Note! This class is not ByteBuddy delegation target, its methods do not have binding annotations.
+ * 
+ * @author ToivoAdams
+ *
+ */
+final class InterceptSupport {
+
+	private InterceptSupport() {
+	}
+
+	@SuppressWarnings("rawtypes")
+	static Object invoke(Level level, ExecutionContext executionContext, LogFactory logFactory
+			, Callable<?> callable, Object[] allArguments, Method method, Class clazz) throws Exception {
+
+		if (!logFactory.logger().isLoggable(level)) {
+			try {
+				return callable.call();
+			} catch (Exception e) {
+				failed(executionContext, logFactory, allArguments, method, clazz.getName(), e);
+				throw e;
+			}
+		}
+
+		StartEvent startEvent = start(level, executionContext, logFactory, allArguments, method, clazz.getName());
+	    try{
+	    	Object result = callable.call();
+	    	end(level, logFactory, startEvent, result, null);
+		    return result;
+	    }
+	    catch(Exception e) {
+	    	end(level, logFactory, startEvent, null, e);
+	        throw e;
+	    }
+	}
+
+	static StartEvent start(Level level, ExecutionContext executionContext, LogFactory logFactory
+			, Object[] allArguments, Method method, String className) {
+
+	    String[] argNames = new String[allArguments.length];
+	 
+	    int i = 0;
+	    for(Parameter p : method.getParameters())
+	    	argNames[i++] = p.getName();
+
+	    RequestContext requestContext = requestContext(allArguments);
+		StartEvent startEvent = new StartEvent(level, "", requestContext, executionContext, logFactory.newCid(), argNames, allArguments);
+		startEvent.setSourceMethodName(method.getName());
+		startEvent.setSourceClassName(className);
+		logFactory.logger().log(startEvent);
+		return startEvent;
+	}
+
+	static void end(Level level, LogFactory logFactory, StartEvent startEvent, Object result, Throwable thrown) {
+		EndEvent endEvent;
+		if (thrown==null)
+			endEvent = new EndEvent(level, "result: " + result, startEvent);
+		else {
+			endEvent = new EndEvent(Level.WARNING, "failed: ", startEvent);
+			endEvent.setThrown(thrown);
+		}
+		endEvent.setSourceMethodName(startEvent.getSourceMethodName());
+		endEvent.setSourceClassName(startEvent.getSourceClassName());
+		logFactory.logger().log(endEvent);
+	}
+
+	/**
+	 * 	Logs failure of call which StartEvent was not logged, because its level is not enabled.
+	 * Failures are always logged at WARNING, like EndEvent of failed call.
+	 */
+	static void failed(ExecutionContext executionContext, LogFactory logFactory
+			, Object[] allArguments, Method method, String className, Throwable thrown) {
+		if (!logFactory.logger().isLoggable(Level.WARNING))
+			return;
+
+		EndEvent endEvent = new EndEvent(Level.WARNING, "failed: ", requestContext(allArguments), executionContext, logFactory.newCid());
+		endEvent.setSourceMethodName(method.getName());
+		endEvent.setSourceClassName(className);
+		endEvent.setThrown(thrown);
+		logFactory.logger().log(endEvent);
+	}
+
+	/**
+	 * 	Intercepted runtime methods get request context only inside message, if any.
+	 * Needed so that per request log sampling can be applied also to these events.
+	 */
+	static RequestContext requestContext(Object[] allArguments) {
+		for (Object argument : allArguments) {
+			if (argument instanceof DCMessage)
+				return ((DCMessage) argument).getContext();
+			if (argument instanceof RequestContext)
+				return (RequestContext) argument;
+		}
+		return null;
+	}
+}
@@ -16,15 +16,11 @@
 package lite.log.intercept;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
-import lite.flow.api.activity.RequestContext;
 import lite.log.api.ExecutionContext;
 import lite.log.api.LogFactory;
-import lite.log.api.event.EndEvent;
-import lite.log.api.event.StartEvent;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
@@ -44,44 +40,7 @@ public class Interceptor {
 
 	@RuntimeType
 	public Object intercept( @SuperCall Callable<?> callable, @AllArguments Object[] allArguments, @Origin Method method, @Origin Class clazz) throws Exception {
-	    long startTime = System.currentTimeMillis();
-	    
-//	    System.out.println("---> " + callable + " " + clazz);
-//	    System.out.println("---> " + clazz.getName() + " " + method.getName() + " " + allArguments);
-	    
-	    String[] argNames = new String[allArguments.length];
-	 
-	    int i = 0;
-	    for(Parameter p : method.getParameters())
-	    	argNames[i++] = p.getName();
-
-	    RequestContext requestContext = null;
-		StartEvent startEvent = new StartEvent(Level.FINE, "", requestContext, executionContext, logFactory.newCid(), argNames, allArguments);
-		startEvent.setSourceMethodName(method.getName());
-		startEvent.setSourceClassName(clazz.getName());
-		logFactory.logger().log(startEvent);
-
-	    try{
-	    	Object result = callable.call();
-			EndEvent endEvent = new EndEvent(Level.FINE, "result: " + result, startEvent);
-			endEvent.setSourceMethodName(method.getName());
-			endEvent.setSourceClassName(clazz.getName());
-			logFactory.logger().log(endEvent);
-		    return result;
-	    }
-	    catch(Exception e) {
-	 //       System.out.println("Exception occurred in method call: " + methodName(clazz, method, allArguments) + " Exception = " + e);
-			EndEvent endEvent = new EndEvent(Level.WARNING, "failed: ", startEvent);
-			endEvent.setThrown(e);
-			endEvent.setSourceMethodName(method.getName());
-			endEvent.setSourceClassName(clazz.getName());
-			logFactory.logger().log(endEvent);
-	        throw e;
-	    }
-	    finally{
-	    	
-	 //       System.out.println(executionContext);
-	    }
+		return InterceptSupport.invoke(Level.FINE, executionContext, logFactory, callable, allArguments, method, clazz);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.intercept;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
+import lite.log.api.LogFactory;
+import lite.log.api.Loggable;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bind.annotation.SuperCall;
+import net.bytebuddy.implementation.bind.annotation.This;
+
+/**
+ * 	Stateless interceptor, execution context and log factory are taken from intercepted instance.
+ * So one generated subclass can be shared by all instances of class.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class LoggableInterceptor {
+
+	@RuntimeType
+	public static Object intercept(@This Loggable self, @SuperCall Callable<?> callable, @AllArguments Object[] allArguments, @Origin Method method, @Origin Class clazz) throws Exception {
+		LogFactory logFactory = self.getLogFactory();
+		// instance is not fully constructed yet
+		if (logFactory==null)
+			return callable.call();
+
+		return InterceptSupport.invoke(Level.FINE, self.getExecutionContext(), logFactory, callable, allArguments, method, clazz);
+	}
+
+}
\ No newline at end of file
@@ -25,7 +25,9 @@ import org.apache.commons.lang3.reflect.ConstructorUtils;
 
 import lite.log.api.ExecutionContext;
 import lite.log.api.Log;
+import lite.log.api.Loggable;
 import lite.log.api.LogFactory;
+import lite.log.api.Woven;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
 import net.bytebuddy.implementation.MethodDelegation;
@@ -45,12 +47,42 @@ public class Modifier<T> {
 		this.modifiedClazz = modifiedClazz;
 	}
 
+	/**
+	 * 	Logging subclasses of Loggable classes, generated once per class.
+	 */
+	private static final ClassValue<Class<?>> loggableSubclasses = new ClassValue<Class<?>>() {
+		@Override
+		protected Class<?> computeValue(Class<?> clazz) {
+			return new ByteBuddy()
+		    		  .subclass(clazz)
+		    		  .method(any().and(isAnnotatedWith(Log.class)).and(not(isDeclaredBy(isAnnotatedWith(Woven.class)))))
+		    		  .intercept(MethodDelegation.to(LoggableInterceptor.class))
+		    		  
+		    		  .make()
+		    		  .load(clazz.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+		    		  .getLoaded();
+		}
+	};
+
+	/**
+	 * 	Classes woven at build time are used as is, Woven is checked only on class itself.
+	 * Subclass which is not woven is subclassed, but methods declared in woven classes are not intercepted again.
+	 * Loggable classes (all runtime activities) use cached subclass, 
+	 * instance own ExecutionContext and LogFactory are used for logging.
+	 * Other classes get new subclass with given context, for every call.
+	 */
 	@SuppressWarnings("unchecked")
 	static public <T> Modifier<T> addLogging(Class<T> clazz, ExecutionContext executionContext, LogFactory logFactory) {
 		
+		if (clazz.isAnnotationPresent(Woven.class))
+			return new Modifier<T>(clazz);
+
+		if (Loggable.class.isAssignableFrom(clazz))
+			return new Modifier<T>((Class<T>) loggableSubclasses.get(clazz));
+
 		Class<T> dynamicType = (Class<T>) new ByteBuddy()
 	    		  .subclass(clazz)
-	    		  .method(any().and(isAnnotatedWith(Log.class)))
+	    		  .method(any().and(isAnnotatedWith(Log.class)).and(not(isDeclaredBy(isAnnotatedWith(Woven.class)))))
 	    		  .intercept(MethodDelegation.to(new Interceptor(executionContext, logFactory)))
 	    		  
 	    		  .make()
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.intercept;
+
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+
+import lite.log.api.LogFactory;
+import lite.log.api.Loggable;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Logging calls used by code woven at build time, see lite.log.weave.LogWeavingPlugin.
+ * Woven code is inlined into application classes, so these methods must stay public.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public final class WovenLogging {
+
+	private WovenLogging() {
+	}
+
+	/**
+	 * @return StartEvent or null when logging is not enabled for this instance
+	 */
+	public static StartEvent start(Object self, Method method, Object[] allArguments) {
+		if (!(self instanceof Loggable))
+			return null;
+
+		Loggable loggable = (Loggable) self;
+		LogFactory logFactory = loggable.getLogFactory();
+		// instance is not fully constructed yet
+		if (logFactory==null || !logFactory.logger().isLoggable(Level.FINE))
+			return null;
+
+		return InterceptSupport.start(Level.FINE, loggable.getExecutionContext(), logFactory, allArguments, method, self.getClass().getName());
+	}
+
+	/**
+	 * 	Failure is logged also when StartEvent was not logged.
+	 */
+	public static void end(Object self, Method method, Object[] allArguments, StartEvent startEvent, Object result, Throwable thrown) {
+		if (startEvent!=null)
+			InterceptSupport.end(Level.FINE, ((Loggable) self).getLogFactory(), startEvent, result, thrown);
+		else if (thrown!=null && self instanceof Loggable) {
+			Loggable loggable = (Loggable) self;
+			LogFactory logFactory = loggable.getLogFactory();
+			if (logFactory!=null)
+				InterceptSupport.failed(loggable.getExecutionContext(), logFactory, allArguments, method, self.getClass().getName(), thrown);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 	Partially correlated entry point arguments were discarded (timeout or memory budget).
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Name("lite.flow.CorrelationDiscard")
+@Label("Correlation Discard")
+@Category({"Lite Flow"})
+@Description("Entry point arguments were not complete in time and were discarded")
+public class CorrelationDiscardEvent extends jdk.jfr.Event {
+
+	@Label("Activity")
+	public String activity;
+
+	@Label("Method")
+	public String method;
+
+	@Label("Data Correlation Id")
+	public long dcid;
+
+	@Label("Reason")
+	public String reason;
+}
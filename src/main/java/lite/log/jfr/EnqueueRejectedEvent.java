@@ -0,0 +1,46 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 	Activity did not accept message (queue full or memory budget exceeded).
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Name("lite.flow.EnqueueRejected")
+@Label("Enqueue Rejected")
+@Category({"Lite Flow"})
+@Description("Activity did not accept message")
+public class EnqueueRejectedEvent extends jdk.jfr.Event {
+
+	@Label("Activity")
+	public String activity;
+
+	@Label("Input")
+	public String input;
+
+	@Label("Request Id")
+	public long requestId;
+
+	@Label("Reason")
+	public String reason;
+}
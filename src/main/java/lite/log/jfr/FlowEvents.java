@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.api.ExecutionContext;
+
+/**
+ * 	Runtime entry to JDK Flight Recorder events.
+ * Events are opt-in (-Dlite.flow.jfr=true) and used only when JVM has JFR (jdk.jfr), 
+ * otherwise every method returns immediately and JFR classes are never loaded.
+ * 
+ * When enabled, JFR recording settings decide which events are recorded.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public final class FlowEvents {
+
+	public static final boolean AVAILABLE 	= jfrAvailable();
+	public static final boolean ENABLED 	= AVAILABLE && Boolean.getBoolean("lite.flow.jfr");
+
+	private FlowEvents() {
+	}
+
+	private static boolean jfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlowEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return invocation event which must be passed to endInvocation, null when not recorded
+	 */
+	public static Object beginInvocation() {
+		if (!ENABLED)
+			return null;
+		return JfrFlowEvents.beginInvocation();
+	}
+
+	/**
+	 * @param invocation	result of beginInvocation, does nothing when null
+	 */
+	public static void endInvocation(Object invocation, ExecutionContext executionContext, String component, String method
+			, RequestContext requestContext, boolean failed) {
+		if (invocation==null)
+			return;
+		JfrFlowEvents.endInvocation(invocation, executionContext, component, method, requestContext, failed);
+	}
+
+	public static void queueWait(ExecutionContext executionContext, String inputName, RequestContext requestContext, long waitNanos) {
+		if (!ENABLED)
+			return;
+		JfrFlowEvents.queueWait(executionContext, inputName, requestContext, waitNanos);
+	}
+
+	public static void correlationDiscarded(ExecutionContext executionContext, String method, UniqueId dcid, String reason) {
+		if (!ENABLED)
+			return;
+		JfrFlowEvents.correlationDiscarded(executionContext, method, dcid, reason);
+	}
+
+	public static void enqueueRejected(ExecutionContext executionContext, String inputName, RequestContext requestContext, String reason) {
+		if (!ENABLED)
+			return;
+		JfrFlowEvents.enqueueRejected(executionContext, inputName, requestContext, reason);
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import static lite.log.binary.EventRecordLayout.idToLong;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import lite.flow.api.activity.RequestContext;
+import lite.log.api.ExecutionContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.EventsBase;
+import lite.log.api.event.MiddleEvent;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Records StartEvent, MiddleEvent and EndEvent as JFR {@link LogEvent}s, other log records are ignored.
+ * Message is not formatted, event is created only when JFR records LogEvent.
+ * 
+ * Requires JVM with JFR (jdk.jfr).
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class JfrEventHandler extends Handler {
+
+	@Override
+	public void publish(LogRecord record) {
+		if (!(record instanceof EventsBase) || !isLoggable(record))
+			return;
+
+		LogEvent event = new LogEvent();
+		if (!event.shouldCommit())
+			return;
+
+		RequestContext requestContext;
+		ExecutionContext executionContext;
+		if (record instanceof StartEvent) {
+			event.type = "Start";
+			requestContext = ((StartEvent) record).requestContext;
+			executionContext = ((StartEvent) record).executionContext;
+		} else if (record instanceof EndEvent) {
+			event.type = "End";
+			requestContext = ((EndEvent) record).requestContext;
+			executionContext = ((EndEvent) record).executionContext;
+		} else if (record instanceof MiddleEvent) {
+			event.type = "Middle";
+			requestContext = ((MiddleEvent) record).requestContext;
+			executionContext = ((MiddleEvent) record).executionContext;
+		} else
+			return;
+
+		EventsBase eventsBase = (EventsBase) record;
+		event.level = record.getLevel().getName();
+		event.activity = executionContext==null ? null : executionContext.toString();
+		event.sourceClass = record.getSourceClassName();
+		event.sourceMethod = record.getSourceMethodName();
+		event.requestId = requestContext==null ? 0 : idToLong(requestContext.getRequestId());
+		event.cid = idToLong(eventsBase.eventCorrelationId);
+		event.message = record.getMessage();
+		event.thrown = record.getThrown()==null ? null : record.getThrown().toString();
+		event.commit();
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() throws SecurityException {
+	}
+}
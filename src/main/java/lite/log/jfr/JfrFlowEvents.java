@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import static lite.log.binary.EventRecordLayout.idToLong;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.api.ExecutionContext;
+
+/**
+ * 	Creates JFR events, used only through {@link FlowEvents} when JFR is available.
+ * 
+ * @author ToivoAdams
+ *
+ */
+final class JfrFlowEvents {
+
+	private JfrFlowEvents() {
+	}
+
+	static Object beginInvocation() {
+		InvocationEvent event = new InvocationEvent();
+		if (!event.isEnabled())
+			return null;
+		event.begin();
+		return event;
+	}
+
+	static void endInvocation(Object invocation, ExecutionContext executionContext, String component, String method
+			, RequestContext requestContext, boolean failed) {
+		InvocationEvent event = (InvocationEvent) invocation;
+		event.end();
+		if (!event.shouldCommit())
+			return;
+		event.activity = String.valueOf(executionContext);
+		event.component = component;
+		event.method = method;
+		event.requestId = requestContext==null ? 0 : idToLong(requestContext.getRequestId());
+		event.failed = failed;
+		event.commit();
+	}
+
+	static void queueWait(ExecutionContext executionContext, String inputName, RequestContext requestContext, long waitNanos) {
+		QueueWaitEvent event = new QueueWaitEvent();
+		if (!event.shouldCommit())
+			return;
+		event.activity = String.valueOf(executionContext);
+		event.input = inputName;
+		event.requestId = requestContext==null ? 0 : idToLong(requestContext.getRequestId());
+		event.wait = waitNanos;
+		event.commit();
+	}
+
+	static void correlationDiscarded(ExecutionContext executionContext, String method, UniqueId dcid, String reason) {
+		CorrelationDiscardEvent event = new CorrelationDiscardEvent();
+		if (!event.shouldCommit())
+			return;
+		event.activity = String.valueOf(executionContext);
+		event.method = method;
+		event.dcid = idToLong(dcid);
+		event.reason = reason;
+		event.commit();
+	}
+
+	static void enqueueRejected(ExecutionContext executionContext, String inputName, RequestContext requestContext, String reason) {
+		EnqueueRejectedEvent event = new EnqueueRejectedEvent();
+		if (!event.shouldCommit())
+			return;
+		event.activity = String.valueOf(executionContext);
+		event.input = inputName;
+		event.requestId = requestContext==null ? 0 : idToLong(requestContext.getRequestId());
+		event.reason = reason;
+		event.commit();
+	}
+}
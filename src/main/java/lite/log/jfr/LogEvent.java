@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 	StartEvent, MiddleEvent or EndEvent log record, see {@link JfrEventHandler}.
+ * 
+ * @author ToivoAdams
+ *
+ */
+@Name("lite.flow.Log")
+@Label("Flow Log Event")
+@Category({"Lite Flow", "Log"})
+@Description("Lite flow StartEvent, MiddleEvent or EndEvent")
+public class LogEvent extends jdk.jfr.Event {
+
+	@Label("Type")
+	public String type;
+
+	@Label("Level")
+	public String level;
+
+	@Label("Activity")
+	public String activity;
+
+	@Label("Class")
+	public String sourceClass;
+
+	@Label("Method")
+	public String sourceMethod;
+
+	@Label("Request Id")
+	public long requestId;
+
+	@Label("Event Correlation Id")
+	public long cid;
+
+	@Label("Message")
+	public String message;
+
+	@Label("Thrown")
+	public String thrown;
+}
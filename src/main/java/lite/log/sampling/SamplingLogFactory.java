@@ -0,0 +1,53 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.sampling;
+
+import java.util.logging.Logger;
+
+import lite.flow.util.UniqueId;
+import lite.log.api.LogFactory;
+
+/**
+ * 	Wraps other LogFactory and applies per request head and tail sampling
+ * to all events logged through it, see {@link SamplingPolicy}.
+ * 
+ * Handlers should be added to wrapped factory logger.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SamplingLogFactory implements LogFactory {
+
+	private final LogFactory 	 delegate;
+	private final SamplingLogger log;
+
+	public SamplingLogFactory(LogFactory delegate, SamplingPolicy policy) {
+		super();
+		this.delegate = delegate;
+		this.log = new SamplingLogger(delegate.logger(), policy);
+	}
+
+	@Override
+	public UniqueId newCid() {
+		return delegate.newCid();
+	}
+
+	@Override
+	public final Logger logger() {
+		return log;
+	}
+
+}
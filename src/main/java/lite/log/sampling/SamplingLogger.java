@@ -0,0 +1,144 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.sampling;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import lite.flow.api.activity.RequestContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.MiddleEvent;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Logger which applies SamplingPolicy per request before passing events to delegate logger.
+ * 
+ * Decision is made once, on first event of request, and kept until request trace expires.
+ * Events without request context are passed through always.
+ * Not traced request events are only buffered, no formatting or handler calls are made for them.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SamplingLogger extends Logger {
+
+	private final Logger 			delegate;
+	private final SamplingPolicy 	policy;
+
+	static class RequestTrace {
+		final long 				firstMillis;
+		boolean 				traced;
+		ArrayDeque<LogRecord> 	buffer;
+
+		RequestTrace(long firstMillis, boolean traced) {
+			this.firstMillis = firstMillis;
+			this.traced = traced;
+		}
+
+		void add(LogRecord record, int maxBufferedEvents) {
+			if (buffer==null)
+				buffer = new ArrayDeque<>();
+			if (buffer.size()>=maxBufferedEvents)
+				buffer.pollFirst();
+			buffer.addLast(record);
+		}
+	}
+
+	private final Map<String, RequestTrace> traces = new LinkedHashMap<String, RequestTrace>(70, 0.7f) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, RequestTrace> eldest) {
+			return (eldest.getValue().firstMillis+policy.bufferTimeToLive)<System.currentTimeMillis();
+		}
+	};
+
+	public SamplingLogger(Logger delegate, SamplingPolicy policy) {
+		super(delegate.getName(), null);
+		this.delegate = delegate;
+		this.policy = policy;
+	}
+
+	@Override
+	public boolean isLoggable(Level level) {
+		return delegate.isLoggable(level);
+	}
+
+	@Override
+	public void log(LogRecord record) {
+		if (!delegate.isLoggable(record.getLevel()))
+			return;
+
+		RequestContext requestContext = requestContext(record);
+		if (requestContext==null || requestContext.getRequestId()==null) {
+			delegate.log(record);
+			return;
+		}
+
+		ArrayDeque<LogRecord> flush = null;
+		synchronized (traces) {
+			String key = requestContext.getRequestId().getIdValue();
+			RequestTrace trace = traces.get(key);
+			if (trace==null) {
+				trace = new RequestTrace(record.getMillis(), policy.isHeadSampled(requestContext.getRequestId()));
+				traces.put(key, trace);
+			}
+
+			if (trace.traced==false) {
+				if (isFailure(record) || (record.getMillis()-trace.firstMillis)>policy.latencyThreshold) {
+					// tail sampled, from now on this request is traced
+					trace.traced = true;
+					flush = trace.buffer;
+					trace.buffer = null;
+				} else {
+					trace.add(record, policy.maxBufferedEvents);
+					return;
+				}
+			}
+		}
+
+		if (flush!=null)
+			for (LogRecord buffered : flush)
+				delegate.log(buffered);
+		delegate.log(record);
+	}
+
+	private static boolean isFailure(LogRecord record) {
+		return record instanceof EndEvent && record.getThrown()!=null;
+	}
+
+	private static RequestContext requestContext(LogRecord record) {
+		if (record instanceof StartEvent)
+			return ((StartEvent) record).requestContext;
+		if (record instanceof EndEvent)
+			return ((EndEvent) record).requestContext;
+		if (record instanceof MiddleEvent)
+			return ((MiddleEvent) record).requestContext;
+		return null;
+	}
+
+	public Logger getDelegate() {
+		return delegate;
+	}
+
+	public SamplingPolicy getPolicy() {
+		return policy;
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.sampling;
+
+import lite.flow.util.UniqueId;
+
+/**
+ * 	Head and tail sampling parameters.
+ * 
+ * Head sampled requests are traced completely.
+ * Other requests events are buffered and flushed only when request fails
+ * or its latency exceeds latencyThreshold. 
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SamplingPolicy {
+
+	/** fraction of requests traced completely, 0.0 - 1.0 */
+	public final double headFraction;
+	/** buffered request is flushed when its events span more than this (milliseconds) */
+	public final long 	latencyThreshold;
+	/** maximum number of buffered events per request, oldest are dropped */
+	public final int 	maxBufferedEvents;
+	/** buffered requests older than this are discarded (milliseconds) */
+	public final long 	bufferTimeToLive;
+
+	public SamplingPolicy(double headFraction, long latencyThreshold, int maxBufferedEvents, long bufferTimeToLive) {
+		super();
+		if (headFraction<0.0 || headFraction>1.0)
+			throw new IllegalArgumentException("SamplingPolicy headFraction should be between 0 and 1, but is " + headFraction);
+		if (maxBufferedEvents<1)
+			throw new IllegalArgumentException("SamplingPolicy maxBufferedEvents should be positive, but is " + maxBufferedEvents);
+		this.headFraction = headFraction;
+		this.latencyThreshold = latencyThreshold;
+		this.maxBufferedEvents = maxBufferedEvents;
+		this.bufferTimeToLive = bufferTimeToLive;
+	}
+
+	/**
+	 * 	Deterministic decision, same request id gives always same answer.
+	 */
+	public boolean isHeadSampled(UniqueId requestId) {
+		if (headFraction>=1.0)
+			return true;
+		if (headFraction<=0.0)
+			return false;
+
+		long h = requestId.getIdValue().hashCode();
+		// murmur3 finalizer spreads sequential ids
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		double unit = (h >>> 11) * 0x1.0p-53;
+		return unit < headFraction;
+	}
+
+	@Override
+	public String toString() {
+		return "SamplingPolicy[headFraction=" + headFraction + ", latencyThreshold=" + latencyThreshold
+				+ ", maxBufferedEvents=" + maxBufferedEvents + ", bufferTimeToLive=" + bufferTimeToLive + "]";
+	}
+}
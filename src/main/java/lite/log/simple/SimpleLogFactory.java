@@ -15,15 +15,15 @@
  */
 package lite.log.simple;
 
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import lite.flow.util.UniqueId;
-import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.LongIdGenerator;
 import lite.log.api.LogFactory;
 
 /**
  * 	Simple factory which create simple Long type eventCorrelationId-s.
+ * Ids are taken from per thread blocks, see {@link LongIdGenerator}.
  * Handy for testing or low volume production.  
  * 
  * @author ToivoAdams
@@ -32,17 +32,22 @@ import lite.log.api.LogFactory;
 public class SimpleLogFactory implements LogFactory {
 
 		
-	private volatile AtomicLong idgen = new AtomicLong(0);
+	private final LongIdGenerator idgen;
 	
 	public final Logger log = Logger.getLogger("XLogger");	
 	
 	public SimpleLogFactory() {
+		this(new LongIdGenerator());
+	}
+
+	public SimpleLogFactory(LongIdGenerator idgen) {
 		super();
+		this.idgen = idgen;
 	}
 
 	@Override
 	public UniqueId newCid() {
-		return new LongUniqueId(idgen.incrementAndGet());
+		return idgen.newId();
 	}
 	
 	@Override
@@ -47,19 +47,7 @@ public class StructFormatter extends SimpleFormatter {
 
 //		formatter.format(args, text, null);
 		
-		SimpleDateFormat datef = new SimpleDateFormat("dd-MMM HH:mm:ss.SSS", Locale.US);
-		String datetime = datef.format(date);
-		
-		sb.append(datetime);
-		sb.append(" ");
-		
-		sb.append( String.format("%1$7s", record.getLevel().getName()) );
-		sb.append(" ");
-		
-		sb.append(shortClassName(record));
-		sb.append(" ");
-		sb.append( String.format("%1$12s", record.getSourceMethodName()));
-		sb.append(" ");
+		appendPrefix(sb, date, record.getLevel().getName(), record.getSourceClassName(), record.getSourceMethodName());
 
 		typeSpecific(sb, record);
 		sb.append( lineSeparator);
@@ -78,9 +66,28 @@ public class StructFormatter extends SimpleFormatter {
 		return sb.toString();
 	}
 
-	private String shortClassName(LogRecord record) {
+	/**
+	 * 	Appends time, level, class and method columns.
+	 * Public because binary event decoder renders records using same layout.
+	 */
+	public static void appendPrefix(StringBuilder sb, Date date, String levelName, String sourceClassName, String sourceMethodName) {
+		SimpleDateFormat datef = new SimpleDateFormat("dd-MMM HH:mm:ss.SSS", Locale.US);
+		String datetime = datef.format(date);
+		
+		sb.append(datetime);
+		sb.append(" ");
+		
+		sb.append( String.format("%1$7s", levelName) );
+		sb.append(" ");
+		
+		sb.append(shortClassName(sourceClassName));
+		sb.append(" ");
+		sb.append( String.format("%1$12s", sourceMethodName));
+		sb.append(" ");
+	}
+
+	private static String shortClassName(String name) {
 		String format = "%1$24s";
-		String name = record.getSourceClassName();
 		if (name==null)
 			return String.format(format, name);
 		
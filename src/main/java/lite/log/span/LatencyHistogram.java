@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.span;
+
+import java.util.Arrays;
+
+/**
+ * 	Log-linear histogram for latency values (microseconds).
+ * Each power of two range is divided to 8 buckets, so relative error is at most 12.5%.
+ * Fixed size, recording does not allocate.
+ * 
+ * Not thread safe.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS 	 = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	
+	private final long[] counts = new long[64*SUB_BUCKETS];
+	private long count;
+	private long sum;
+	private long max;
+
+	public void record(long value) {
+		if (value<0)
+			value = 0;
+		counts[index(value)]++;
+		count++;
+		sum += value;
+		if (value>max)
+			max = value;
+	}
+
+	static int index(long value) {
+		if (value<SUB_BUCKETS)
+			return (int) value;
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) ((value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long lowerBound(int index) {
+		if (index<SUB_BUCKETS)
+			return index;
+		int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = index % SUB_BUCKETS;
+		return (1L << exp) | ((long) sub << (exp - SUB_BITS));
+	}
+
+	/**
+	 * @param percentile	0.0 - 100.0
+	 * @return lower bound of bucket containing given percentile, 0 when histogram is empty
+	 */
+	public long percentile(double percentile) {
+		if (count==0)
+			return 0;
+		long rank = (long) Math.ceil(percentile / 100.0 * count);
+		if (rank<1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen>=rank)
+				return Math.min(lowerBound(i), max);
+		}
+		return max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count==0 ? 0.0 : (double) sum / count;
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.span;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.log.api.ExecutionContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+/**
+ * 	Handler which matches StartEvent and EndEvent pairs by eventCorrelationId
+ * and keeps per (flow, activity, method) latency histograms and error counts.
+ * Events are not printed, only periodic summaries are published.
+ * 
+ * Add this handler to LogFactory logger instead of (or in addition to) formatting handlers.
+ * Latency is measured when events are published, so handler should be attached directly to logger.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SpanAggregatorHandler extends Handler {
+
+	/** StartEvent without EndEvent is forgotten after this time (milliseconds) */
+	public static int MAX_SPAN_TIME = 60000;
+
+	/**
+	 * 	Names are kept as given by events (class and method names are interned by JVM),
+	 * so key does not build strings. Only one probe key is reused for lookups, 
+	 * new key is created when span is seen first time.
+	 */
+	static final class SpanKey {
+		String 			 flowName;
+		String 			 activityName;
+		// execution context which is not FlowExecutionContext, rendered only in summary 
+		ExecutionContext context;
+		String 			 className;
+		String 			 methodName;
+		int 			 hash;
+
+		SpanKey set(ExecutionContext executionContext, String className, String methodName) {
+			if (executionContext instanceof FlowExecutionContext) {
+				FlowExecutionContext flowExecutionContext = (FlowExecutionContext) executionContext;
+				this.flowName = flowExecutionContext.flow==null ? null : flowExecutionContext.flow.flowName;
+				this.activityName = flowExecutionContext.activityName;
+				this.context = null;
+			} else {
+				this.flowName = null;
+				this.activityName = null;
+				this.context = executionContext;
+			}
+			this.className = className;
+			this.methodName = methodName;
+			this.hash = ((((Objects.hashCode(flowName) * 31) + Objects.hashCode(activityName)) * 31 + Objects.hashCode(context)) * 31 
+					+ Objects.hashCode(className)) * 31 + Objects.hashCode(methodName);
+			return this;
+		}
+
+		SpanKey copy() {
+			SpanKey key = new SpanKey();
+			key.flowName = flowName;
+			key.activityName = activityName;
+			key.context = context;
+			key.className = className;
+			key.methodName = methodName;
+			key.hash = hash;
+			return key;
+		}
+
+		String activityName() {
+			return context==null ? activityName : context.toString();
+		}
+
+		String methodName() {
+			return className==null ? methodName : className + "." + methodName;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SpanKey))
+				return false;
+			SpanKey other = (SpanKey) obj;
+			return hash==other.hash && Objects.equals(methodName, other.methodName) && Objects.equals(className, other.className) 
+					&& Objects.equals(activityName, other.activityName) && Objects.equals(flowName, other.flowName) 
+					&& Objects.equals(context, other.context);
+		}
+	}
+
+	static final class OpenSpan {
+		final SpanStats stats;
+		final long 		startNanos;
+		final long 		startMillis;
+
+		OpenSpan(SpanStats stats, long startNanos, long startMillis) {
+			this.stats = stats;
+			this.startNanos = startNanos;
+			this.startMillis = startMillis;
+		}
+	}
+
+	static final class SpanStats {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		long errors;
+	}
+
+	private final Map<String, OpenSpan> openSpans = new LinkedHashMap<String, OpenSpan>(70, 0.7f) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, OpenSpan> eldest) {
+			return (eldest.getValue().startMillis+MAX_SPAN_TIME)<System.currentTimeMillis();
+		}
+	};
+
+	private final Map<SpanKey, SpanStats> stats = new HashMap<>();
+	// reused for stats lookup, used only inside synchronized publish
+	private final SpanKey probe = new SpanKey();
+	private final Logger summaryLogger;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param summaryLogger	summaries are logged to this logger at INFO level, may be null when only {@link #snapshot(boolean)} is used
+	 */
+	public SpanAggregatorHandler(Logger summaryLogger) {
+		super();
+		this.summaryLogger = summaryLogger;
+	}
+
+	@Override
+	public synchronized void publish(LogRecord record) {
+		if (!isLoggable(record))
+			return;
+
+		if (record instanceof StartEvent) {
+			StartEvent startEvent = (StartEvent) record;
+			SpanStats spanStats = statsOf(probe.set(startEvent.executionContext, startEvent.getSourceClassName(), startEvent.getSourceMethodName()));
+			openSpans.put(startEvent.eventCorrelationId.getIdValue(), new OpenSpan(spanStats, System.nanoTime(), startEvent.getMillis()));
+
+		} else if (record instanceof EndEvent) {
+			EndEvent endEvent = (EndEvent) record;
+			// second EndEvent of same correlation id (for example after failure) is ignored
+			OpenSpan openSpan = openSpans.remove(endEvent.eventCorrelationId.getIdValue());
+			if (openSpan==null)
+				return;
+
+			SpanStats spanStats = openSpan.stats;
+			spanStats.histogram.record((System.nanoTime() - openSpan.startNanos) / 1000);
+			if (endEvent.getThrown()!=null)
+				spanStats.errors++;
+		}
+	}
+
+	private SpanStats statsOf(SpanKey probe) {
+		SpanStats spanStats = stats.get(probe);
+		if (spanStats==null) {
+			spanStats = new SpanStats();
+			stats.put(probe.copy(), spanStats);
+		}
+		return spanStats;
+	}
+
+	/**
+	 * 	Current summaries.
+	 * 
+	 * @param reset	when true, statistics are cleared and next period starts
+	 */
+	public synchronized List<SpanSummary> snapshot(boolean reset) {
+		List<SpanSummary> summaries = new ArrayList<>(stats.size());
+		for (Map.Entry<SpanKey, SpanStats> entry : stats.entrySet()) {
+			SpanKey key = entry.getKey();
+			SpanStats spanStats = entry.getValue();
+			if (spanStats.histogram.getCount()==0)
+				continue;
+			summaries.add(new SpanSummary(key.flowName, key.activityName(), key.methodName(), spanStats.errors, spanStats.histogram));
+			if (reset) {
+				spanStats.histogram.reset();
+				spanStats.errors = 0;
+			}
+		}
+		return summaries;
+	}
+
+	/**
+	 * 	Logs summaries and starts new period.
+	 */
+	public void publishSummaries() {
+		if (summaryLogger==null)
+			return;
+		for (SpanSummary summary : snapshot(true))
+			summaryLogger.log(Level.INFO, summary.toString());
+	}
+
+	public synchronized void startPublishing(long period, TimeUnit unit) {
+		if (scheduler!=null)
+			throw new IllegalStateException("SpanAggregatorHandler publishing already started");
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "SpanAggregatorHandler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::publishSummaries, period, period, unit);
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public synchronized void close() throws SecurityException {
+		if (scheduler!=null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+}
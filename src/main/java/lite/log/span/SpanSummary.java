@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.span;
+
+/**
+ * 	Latency and error summary of one (flow, activity, method) for one publish period.
+ * Latencies are in microseconds.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class SpanSummary {
+
+	public final String flowName;
+	public final String activityName;
+	public final String methodName;
+	public final long 	count;
+	public final long 	errors;
+	public final double mean;
+	public final long 	p50;
+	public final long 	p90;
+	public final long 	p99;
+	public final long 	max;
+
+	public SpanSummary(String flowName, String activityName, String methodName, long errors, LatencyHistogram histogram) {
+		super();
+		this.flowName = flowName;
+		this.activityName = activityName;
+		this.methodName = methodName;
+		this.count = histogram.getCount();
+		this.errors = errors;
+		this.mean = histogram.getMean();
+		this.p50 = histogram.percentile(50);
+		this.p90 = histogram.percentile(90);
+		this.p99 = histogram.percentile(99);
+		this.max = histogram.getMax();
+	}
+
+	public double getErrorRate() {
+		return count==0 ? 0.0 : (double) errors / count;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("span[flow=%s, activity=%s, method=%s] count=%d errorRate=%.4f mean=%.1f p50=%d p90=%d p99=%d max=%d us"
+				, flowName, activityName, methodName, count, getErrorRate(), mean, p50, p90, p99, max);
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.weave;
+
+import java.lang.reflect.Method;
+
+import lite.log.api.event.StartEvent;
+import lite.log.intercept.WovenLogging;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/**
+ * 	Advice inlined into {@link lite.log.api.Log} methods at build time.
+ * Replaces Interceptor delegation, no Callable is created per call.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LogAdvice {
+
+	@Advice.OnMethodEnter
+	public static StartEvent enter(@Advice.This Object self, @Advice.Origin Method method, @Advice.AllArguments Object[] allArguments) {
+		return WovenLogging.start(self, method, allArguments);
+	}
+
+	@Advice.OnMethodExit(onThrowable = Throwable.class)
+	public static void exit(@Advice.This Object self, @Advice.Origin Method method, @Advice.AllArguments Object[] allArguments
+			, @Advice.Enter StartEvent startEvent, @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object result, @Advice.Thrown Throwable thrown) {
+		WovenLogging.end(self, method, allArguments, startEvent, result, thrown);
+	}
+}
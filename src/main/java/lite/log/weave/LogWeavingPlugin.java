@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.weave;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+import java.io.IOException;
+
+import lite.log.api.Log;
+import lite.log.api.Loggable;
+import lite.log.api.Woven;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.build.Plugin;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.DynamicType;
+
+/**
+ * 	Build time plugin for byte-buddy-maven-plugin, used by "weave" profile.
+ * 
+ * Inlines {@link LogAdvice} into all {@link Log} instance methods of {@link Loggable} classes
+ * and marks these classes {@link Woven}, so Modifier does not subclass them at runtime.
+ * 
+ * @author ToivoAdams
+ *
+ */
+public class LogWeavingPlugin implements Plugin {
+
+	@Override
+	public boolean matches(TypeDescription target) {
+		return !target.isInterface()
+				&& target.isAssignableTo(Loggable.class)
+				&& !target.getDeclaredMethods().filter(isAnnotatedWith(Log.class).and(not(isAbstract())).and(not(isStatic()))).isEmpty();
+	}
+
+	@Override
+	public DynamicType.Builder<?> apply(DynamicType.Builder<?> builder, TypeDescription typeDescription, ClassFileLocator classFileLocator) {
+		return builder
+				.visit(Advice.to(LogAdvice.class).on(isMethod().and(isAnnotatedWith(Log.class)).and(not(isAbstract())).and(not(isStatic()))))
+				.annotateType(AnnotationDescription.Builder.ofType(Woven.class).build());
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+}
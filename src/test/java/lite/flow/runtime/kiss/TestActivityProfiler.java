@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestActivityProfiler {
+
+	@Test
+	public void testMeasuresCpuAndAllocations() {
+		ActivityProfiler profiler = new ActivityProfiler(1);
+		ActivityProfiler.Stats busy = profiler.stats("busy");
+		ActivityProfiler.Stats idle = profiler.stats("idle");
+		assertSame("stats should be created once per name", busy, profiler.stats("busy"));
+
+		long sink = 0;
+		for (int call = 0; call < 10; call++) {
+			assertTrue(profiler.count(busy));
+			long cpuTime = profiler.cpuTime();
+			long allocatedBytes = profiler.allocatedBytes();
+			for (int i = 0; i < 100_000; i++)
+				sink += new long[4].length + i;
+			profiler.record(busy, cpuTime, allocatedBytes);
+
+			profiler.count(idle);
+			profiler.record(idle, profiler.cpuTime(), profiler.allocatedBytes());
+		}
+		assertTrue(sink>0);
+
+		assertEquals(10, busy.calls());
+		assertEquals(10, busy.sampled());
+		assertTrue("busy should consume CPU", busy.avgCpuNanos()>0);
+		List<ActivityProfiler.Stats> results = profiler.results();
+		assertSame("most CPU consuming should be first", busy, results.get(0));
+		assertTrue(profiler.report().contains("busy"));
+	}
+
+	@Test
+	public void testSampling() {
+		ActivityProfiler profiler = new ActivityProfiler(10);
+		ActivityProfiler.Stats stats = profiler.stats("sampled");
+		int sampled = 0;
+		for (int i = 0; i < 10_000; i++)
+			if (profiler.count(stats))
+				sampled++;
+		assertEquals(10_000, stats.calls());
+		assertTrue("about every 10th call should be sampled, but was " + sampled, sampled>500 && sampled<1500);
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestBlockingExecutor {
+
+	@Test
+	public void testCallerRunsWhenQueueIsFull() throws InterruptedException {
+		BlockingExecutor executor = new BlockingExecutor("test-blocking", 1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(2);
+		Runnable blocked = () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		};
+		executor.execute(blocked);	// occupies only thread
+		executor.execute(done::countDown);	// waits in queue
+
+		AtomicReference<Thread> runner = new AtomicReference<>();
+		executor.execute(() -> runner.set(Thread.currentThread()));
+		assertSame("full executor should run task in caller thread", Thread.currentThread(), runner.get());
+		assertEquals(1, executor.callerRuns());
+
+		release.countDown();
+		assertTrue("queued tasks should complete", done.await(5, TimeUnit.SECONDS));
+		executor.shutdown();
+	}
+
+	@Test
+	public void testThreadsAreNamedAndDaemon() throws InterruptedException {
+		BlockingExecutor executor = new BlockingExecutor("test-blocking", 2, 10);
+		AtomicReference<Thread> runner = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch(1);
+		executor.execute(() -> {
+			runner.set(Thread.currentThread());
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(runner.get().getName().startsWith("test-blocking-"));
+		assertTrue(runner.get().isDaemon());
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.data.CancelCommand;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.log.simple.SimpleLogFactory;
+
+public class TestCancellations {
+
+	static class RecordingActivity extends SequentialActivity {
+		final BlockingQueue<Object> processed = new ArrayBlockingQueue<>(10);
+
+		RecordingActivity() {
+			super(10, new FlowExecutionContext(null, "recording"), new SimpleLogFactory());
+		}
+
+		@Override
+		public Object processDataMessage(DataMessage<?> dataMessage, String inputName) {
+			processed.add(dataMessage.data);
+			return null;
+		}
+
+		@Override
+		public void processCommandMessage(DCMessage commandMessage, String inputName) {
+			processed.add(commandMessage);
+		}
+
+		@Override
+		public void addDestination(String ouputName, Consumer consumer, String destinationName) {
+		}
+	}
+
+	@Test
+	public void testCancel() {
+		Cancellations cancellations = new Cancellations();
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		assertTrue(cancellations.isEmpty());
+		assertFalse(cancellations.isCancelled(ctx));
+
+		assertTrue(cancellations.cancel(ctx.getRequestId()));
+		assertFalse("second cancel should be ignored", cancellations.cancel(ctx.getRequestId()));
+		assertTrue(cancellations.isCancelled(ctx));
+		assertFalse(cancellations.isCancelled(new SimpleRequestContext()));
+		assertEquals(1, cancellations.cancelledRequests());
+	}
+
+	@Test
+	public void testCancelledAreForgotten() throws InterruptedException {
+		Cancellations cancellations = new Cancellations(10);
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		cancellations.cancel(ctx.getRequestId());
+		Thread.sleep(30);
+		// expired ids are removed on next cancel
+		cancellations.cancel(new SimpleRequestContext().getRequestId());
+		assertFalse(cancellations.isCancelled(ctx));
+	}
+
+	@Test
+	public void testCurrentRequestCancelled() {
+		Cancellations cancellations = new Cancellations();
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		assertFalse("without bound cancellations nothing is cancelled", Cancellations.isCurrentRequestCancelled());
+
+		Cancellations previousCancellations = Cancellations.bind(cancellations);
+		RequestContext previous = RequestContextCarrier.bind(ctx);
+		try {
+			assertFalse(Cancellations.isCurrentRequestCancelled());
+			cancellations.cancel(ctx.getRequestId());
+			assertTrue(Cancellations.isCurrentRequestCancelled());
+		} finally {
+			RequestContextCarrier.restore(previous);
+			Cancellations.restore(previousCancellations);
+		}
+	}
+
+	@Test
+	public void testQueuedMessagesAreSkipped() throws InterruptedException {
+		RecordingActivity activity = new RecordingActivity();
+		Cancellations cancellations = new Cancellations();
+		activity.setCancellations(cancellations);
+		SimpleRequestContext cancelled = new SimpleRequestContext();
+		SimpleRequestContext other = new SimpleRequestContext();
+		cancellations.cancel(cancelled.getRequestId());
+
+		activity.enqueue(new DataMessage<>(cancelled, "a", "skipped"));
+		activity.enqueue(new DataMessage<>(other, "a", "processed"));
+		CancelCommand command = new CancelCommand(cancelled.getRequestId());
+		activity.enqueue(command);
+
+		Thread thread = new Thread(activity);
+		thread.setDaemon(true);
+		thread.start();
+
+		assertEquals("processed", activity.processed.poll(5, TimeUnit.SECONDS));
+		assertSame("command should reach activity", command, activity.processed.poll(5, TimeUnit.SECONDS));
+		assertEquals(1, cancellations.skippedMessages());
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static lite.flow.util.ActivityInspector.inspect;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.ActivityInspector.EntryPoint;
+import lite.log.simple.SimpleLogFactory;
+
+public class TestCorrelator {
+
+	public static class Sum {
+		public int add(int a, int b) {
+			return a + b;
+		}
+	}
+
+	static class TestConsumer implements Consumer {
+		final List<DCMessage> received = new ArrayList<>();
+		boolean accepting = true;
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg) {
+			if (!accepting)
+				return false;
+			received.add(dcmsg);
+			return true;
+		}
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg, String destinationName) {
+			return enqueue(dcmsg);
+		}
+
+		@Override
+		public boolean canBeEnqueued() {
+			return accepting;
+		}
+	}
+
+	final boolean pooling = ObjectPool.ENABLED;
+	final EntryPoint entryPoint = inspect(Sum.class).entryPoints[0];
+	final String[] inputNames = entryPoint.inputNames;
+
+	@After
+	public void restore() {
+		ObjectPool.ENABLED = pooling;
+	}
+
+	private Correlator correlator(TestConsumer consumer) {
+		Correlator correlator = new Correlator(10, new FlowExecutionContext(null, "sum"), entryPoint, new SimpleLogFactory());
+		correlator.addDestination("correlatedInputs", consumer, "correlatedInputs");
+		return correlator;
+	}
+
+	@Test
+	public void testCompleteRowIsEmitted() {
+		ObjectPool.ENABLED = true;
+		TestConsumer consumer = new TestConsumer();
+		Correlator correlator = correlator(consumer);
+		SimpleRequestContext ctx = new SimpleRequestContext();
+
+		correlator.processDataMessage(new DataMessage<>(ctx, inputNames[0], 7), inputNames[0]);
+		assertTrue(consumer.received.isEmpty());
+		correlator.processDataMessage(new DataMessage<>(ctx, inputNames[1], 9), inputNames[1]);
+		assertEquals(1, consumer.received.size());
+		CorrelatedEntryPointArguments row = (CorrelatedEntryPointArguments) ((DataMessage<?>) consumer.received.get(0)).data;
+		assertEquals(ctx.getRequestId(), row.dcid);
+		assertEquals("emitted row is owned by receiver", 1, correlator.getRowPool().outstanding());
+		row.release();
+		assertEquals(0, correlator.getRowPool().outstanding());
+	}
+
+	@Test
+	public void testRejectedRowIsReleased() {
+		ObjectPool.ENABLED = true;
+		TestConsumer consumer = new TestConsumer();
+		consumer.accepting = false;
+		Correlator correlator = correlator(consumer);
+		SimpleRequestContext ctx = new SimpleRequestContext();
+
+		correlator.processDataMessage(new DataMessage<>(ctx, inputNames[0], 7), inputNames[0]);
+		correlator.processDataMessage(new DataMessage<>(ctx, inputNames[1], 9), inputNames[1]);
+		assertTrue(consumer.received.isEmpty());
+		assertEquals("row which receiver rejected should be returned to pool", 0, correlator.getRowPool().outstanding());
+	}
+
+	@Test
+	public void testPooledRowArgValuesAreCopied() {
+		ObjectPool<CorrelatedEntryPointArguments> pool = new ObjectPool<>("rows", p -> new CorrelatedEntryPointArguments(entryPoint, null, p));
+		CorrelatedEntryPointArguments row = pool.acquire().reset(new SimpleRequestContext().getRequestId());
+		row.put(inputNames[0], new DataMessage<>(new SimpleRequestContext(), inputNames[0], 2));
+		row.put(inputNames[1], new DataMessage<>(new SimpleRequestContext(), inputNames[1], 3));
+
+		// kept by log events after invocation
+		Object[] argValues = row.argValues();
+		row.release();
+		assertArrayEquals("released row should not change argument values", new Object[] {2, 3}, argValues);
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static lite.flow.util.ActivityInspector.inspect;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.api.flow.define.Component;
+import lite.flow.runtime.kiss.TestCancellations.RecordingActivity;
+import lite.flow.runtime.kiss.TestMethodInvokerSequential.CoalescedLookup;
+import lite.flow.runtime.kiss.TestMethodInvokerSequential.ResultConsumer;
+import lite.flow.runtime.kiss.TestMethodInvokerSequential.SlowLookup;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.DeadlineAware;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.ActivityInspector.EntryPoint;
+import lite.log.simple.SimpleLogFactory;
+
+public class TestDeadlines {
+
+	@Test
+	public void testDeadline() {
+		long now = System.currentTimeMillis();
+		SimpleRequestContext ctx = SimpleRequestContext.withTimeout(1, TimeUnit.SECONDS);
+		assertTrue(ctx.getDeadline()>=now+1000);
+		assertFalse(DeadlineAware.isExpired(ctx, now));
+		assertTrue(DeadlineAware.isExpired(ctx, ctx.getDeadline()+1));
+
+		SimpleRequestContext noDeadline = new SimpleRequestContext();
+		assertEquals(DeadlineAware.NO_DEADLINE, DeadlineAware.deadlineOf(noDeadline));
+		assertFalse(DeadlineAware.isExpired(noDeadline, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testExpiredMessagesAreSkipped() throws InterruptedException {
+		RecordingActivity activity = new RecordingActivity();
+		SimpleRequestContext expired = new SimpleRequestContext(System.currentTimeMillis() - 1);
+		SimpleRequestContext alive = SimpleRequestContext.withTimeout(1, TimeUnit.MINUTES);
+
+		activity.enqueue(new DataMessage<>(expired, "a", "skipped"));
+		activity.enqueue(new DataMessage<>(alive, "a", "processed"));
+
+		Thread thread = new Thread(activity);
+		thread.setDaemon(true);
+		thread.start();
+
+		assertEquals("processed", activity.processed.poll(5, TimeUnit.SECONDS));
+		assertEquals(1, activity.expirations());
+	}
+
+	@Test
+	public void testExpiredLeaderIsReplacedByJoinedRequest() throws ReflectiveOperationException, InterruptedException {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		BlockingExecutor blockingExecutor = new BlockingExecutor("test-blocking", 2, 10);
+		CoalescedLookup.calls.set(0);
+		SlowLookup.release = new CountDownLatch(1);
+		try {
+			EntryPoint entryPoint = inspect(CoalescedLookup.class).entryPoints[0];
+			MethodInvokerSequential invoker = new MethodInvokerSequential(10, new FlowExecutionContext(null, "lookup")
+					, new SimpleLogFactory(), executorService, new Component(CoalescedLookup.class, "lookup", 0, 0), true);
+			ResultConsumer consumer = new ResultConsumer();
+			invoker.addDestination(entryPoint.outputName, consumer, "result");
+			invoker.setBlockingExecutor(blockingExecutor, 1);
+
+			// occupies only permit, so leader and joined requests wait until leader is expired
+			TestMethodInvokerSequential.invoke(invoker, entryPoint, new SimpleRequestContext(), "busy");
+			SimpleRequestContext leader = SimpleRequestContext.withTimeout(50, TimeUnit.MILLISECONDS);
+			SimpleRequestContext expiredWaiter = SimpleRequestContext.withTimeout(50, TimeUnit.MILLISECONDS);
+			SimpleRequestContext waiter = SimpleRequestContext.withTimeout(1, TimeUnit.MINUTES);
+			TestMethodInvokerSequential.invoke(invoker, entryPoint, leader, "id");
+			TestMethodInvokerSequential.invoke(invoker, entryPoint, expiredWaiter, "id");
+			TestMethodInvokerSequential.invoke(invoker, entryPoint, waiter, "id");
+			Thread.sleep(100);
+			SlowLookup.release.countDown();
+
+			assertEquals("value-busy", consumer.poll());
+			DataMessage<?> result = (DataMessage<?>) consumer.results.poll(5, TimeUnit.SECONDS);
+			assertEquals("live joined request should get result", "value-id", result.data);
+			assertSame(waiter, result.context);
+			long deadline = System.currentTimeMillis() + 5000;
+			while (invoker.nrOfActiveCalls.get()>0 && System.currentTimeMillis()<deadline)
+				Thread.sleep(5);
+			assertEquals("expired requests should not be invoked", 2, CoalescedLookup.calls.get());
+			assertEquals(2, invoker.expirations());
+			assertEquals(0, invoker.getSingleFlight(entryPoint.method).inFlight());
+			assertTrue("expired requests should get nothing", consumer.results.isEmpty());
+
+			TestMethodInvokerSequential.invoke(invoker, entryPoint, new SimpleRequestContext(), "id");
+			assertEquals("same arguments should be invoked again", "value-id", consumer.poll());
+			assertEquals(3, CoalescedLookup.calls.get());
+		} finally {
+			SlowLookup.release.countDown();
+			blockingExecutor.shutdown();
+			executorService.shutdown();
+		}
+	}
+}
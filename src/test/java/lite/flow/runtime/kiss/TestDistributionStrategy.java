@@ -0,0 +1,173 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.DistributorOutput.Destination;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage.Kind;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestDistributionStrategy {
+
+	static class TestConsumer implements Consumer {
+		final List<Object> received = new ArrayList<>();
+		boolean accepting = true;
+		int depth;
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg) {
+			throw new UnsupportedOperationException("destination name should be given");
+		}
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg, String destinationName) {
+			if (!accepting)
+				return false;
+			received.add(dcmsg instanceof DataMessage ? ((DataMessage<?>) dcmsg).data : ((PrimitiveDataMessage) dcmsg).boxed());
+			return true;
+		}
+
+		@Override
+		public boolean canBeEnqueued() {
+			return accepting;
+		}
+
+		@Override
+		public int queueDepth() {
+			return depth;
+		}
+	}
+
+	final SimpleRequestContext ctx = new SimpleRequestContext();
+	final TestConsumer[] consumers = {new TestConsumer(), new TestConsumer(), new TestConsumer()};
+
+	private DistributorOutput<Object> output(DistributionStrategy strategy) {
+		DistributorOutput<Object> output = new DistributorOutput<>("out");
+		for (int i = 0; i < consumers.length; i++)
+			output.addDestination(new Destination("in" + i, consumers[i]));
+		output.setStrategy(strategy);
+		return output;
+	}
+
+	@Test
+	public void testBroadcast() {
+		DistributorOutput<Object> output = output(DistributionStrategy.broadcast());
+		consumers[1].accepting = false;
+		output.emit("a", ctx);
+		assertEquals(1, consumers[0].received.size());
+		assertEquals(0, consumers[1].received.size());
+		assertEquals(1, consumers[2].received.size());
+	}
+
+	@Test
+	public void testRoundRobinRotates() {
+		DistributorOutput<Object> output = output(DistributionStrategy.roundRobin());
+		for (int i = 0; i < 6; i++)
+			output.emit(i, ctx);
+		assertEquals(2, consumers[0].received.size());
+		assertEquals(2, consumers[1].received.size());
+		assertEquals(2, consumers[2].received.size());
+		assertEquals(0, consumers[0].received.get(0));
+		assertEquals(1, consumers[1].received.get(0));
+		assertEquals(3, consumers[0].received.get(1));
+	}
+
+	@Test
+	public void testRoundRobinSkipsRefusingDestination() {
+		DistributorOutput<Object> output = output(DistributionStrategy.roundRobin());
+		consumers[1].accepting = false;
+		for (int i = 0; i < 6; i++)
+			output.emit(i, ctx);
+		assertEquals("every message should be delivered once", 6, consumers[0].received.size() + consumers[2].received.size());
+		assertTrue(consumers[1].received.isEmpty());
+	}
+
+	@Test
+	public void testKeyHashIsStable() {
+		DistributorOutput<Object> output = output(DistributionStrategy.keyHash());
+		for (int round = 0; round < 3; round++)
+			for (String key : new String[] {"alpha", "beta", "gamma", "delta"})
+				output.emit(key, ctx);
+		for (TestConsumer consumer : consumers)
+			for (Object key : consumer.received)
+				assertEquals("same key should always go to same destination", 3, count(consumer.received, key));
+
+		// primitive values are routed like boxed values
+		DistributorOutput<Object> primitiveOutput = output(DistributionStrategy.keyHash());
+		primitiveOutput.emitPrimitive(Kind.INT, Kind.INT.toBits(42), ctx);
+		primitiveOutput.emit(42, ctx);
+		for (TestConsumer consumer : consumers)
+			assertTrue(count(consumer.received, 42)==0 || count(consumer.received, 42)==2);
+	}
+
+	@Test
+	public void testKeyHashDoesNotFallBack() {
+		DistributorOutput<Object> output = output(DistributionStrategy.keyHash(data -> "same"));
+		for (TestConsumer consumer : consumers)
+			consumer.accepting = false;
+		output.emit("a", ctx);
+		for (TestConsumer consumer : consumers)
+			assertTrue("refused message should not go to other destination", consumer.received.isEmpty());
+	}
+
+	@Test
+	public void testLeastLoadedChoosesSmallestQueue() {
+		DistributorOutput<Object> output = output(DistributionStrategy.leastLoaded());
+		consumers[0].depth = 5;
+		consumers[1].depth = 1;
+		consumers[2].depth = 3;
+		for (int i = 0; i < 3; i++)
+			output.emit(i, ctx);
+		assertEquals(3, consumers[1].received.size());
+
+		// destination which can not be enqueued is avoided even when its queue is shortest
+		consumers[1].accepting = false;
+		output.emit("next", ctx);
+		assertEquals("next", consumers[2].received.get(0));
+	}
+
+	@Test
+	public void testDistributions() {
+		Distributions distributions = new Distributions();
+		DistributionStrategy strategy = DistributionStrategy.roundRobin();
+		distributions.set("splitter", "out", strategy);
+		distributions.set("splitter", "out", strategy);
+		assertSame(strategy, distributions.get("splitter", "out"));
+		assertNull(distributions.get("splitter", "other"));
+		try {
+			distributions.set("splitter", "out", DistributionStrategy.broadcast());
+			fail("output should have only one strategy");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static int count(List<Object> values, Object value) {
+		int count = 0;
+		for (Object v : values)
+			if (v.equals(value))
+				count++;
+		return count;
+	}
+}
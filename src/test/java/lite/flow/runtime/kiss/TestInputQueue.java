@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.TestCancellations.RecordingActivity;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestInputQueue {
+
+	@Test
+	public void testWrapAround() throws InterruptedException {
+		InputQueue queue = new InputQueue(3);
+		InputQueue.Entry entry = new InputQueue.Entry();
+		SimpleRequestContext ctx = new SimpleRequestContext();
+
+		// indexes wrap around several times, order is kept
+		int next = 0;
+		for (int round = 0; round < 5; round++) {
+			assertTrue(queue.offer(new DataMessage<>(ctx, "a", round*2), "in" + round*2));
+			assertTrue(queue.offer(new DataMessage<>(ctx, "a", round*2+1), "in" + (round*2+1)));
+			for (int i = 0; i < 2; i++) {
+				assertTrue(queue.poll(entry, 0, TimeUnit.MILLISECONDS));
+				assertEquals(next, ((DataMessage<?>) entry.message).data);
+				assertEquals("in" + next, entry.inputName);
+				next++;
+			}
+		}
+		assertEquals(0, queue.size());
+
+		for (int i = 0; i < 3; i++)
+			assertTrue(queue.offer(new DataMessage<>(ctx, "a", i), "in"));
+		assertFalse("full queue should reject", queue.offer(new DataMessage<>(ctx, "a", 3), "in"));
+		assertEquals(0, queue.remainingCapacity());
+		for (int i = 0; i < 3; i++) {
+			assertTrue(queue.poll(entry, 0, TimeUnit.MILLISECONDS));
+			assertEquals(i, ((DataMessage<?>) entry.message).data);
+		}
+		assertFalse(queue.poll(entry, 1, TimeUnit.MILLISECONDS));
+		assertNull("entry should be cleared", entry.message);
+	}
+
+	@Test
+	public void testSharedMessageFanOut() throws InterruptedException {
+		RecordingActivity first = new RecordingActivity();
+		RecordingActivity second = new RecordingActivity();
+		DistributorOutput<String> output = new DistributorOutput<>("out");
+		output.addDestination(new DistributorOutput.Destination("left", first));
+		output.addDestination(new DistributorOutput.Destination("right", second));
+
+		output.emit("shared", new SimpleRequestContext());
+
+		InputQueue.Entry firstEntry = new InputQueue.Entry();
+		InputQueue.Entry secondEntry = new InputQueue.Entry();
+		assertTrue(first.getInputQueue().poll(firstEntry, 0, TimeUnit.MILLISECONDS));
+		assertTrue(second.getInputQueue().poll(secondEntry, 0, TimeUnit.MILLISECONDS));
+		assertSame("message should not be copied per destination", firstEntry.message, secondEntry.message);
+		assertEquals("left", firstEntry.inputName);
+		assertEquals("right", secondEntry.inputName);
+		assertEquals("out", ((DataMessage<?>) firstEntry.message).dataName);
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestLatencyTracker {
+
+	static final long MS = 1_000_000;
+
+	@Test
+	public void testCriticalPathOfJoin() {
+		LatencyTracker tracker = new LatencyTracker();
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		LatencyTracker.Edge input  = tracker.edge("flow", "x");
+		LatencyTracker.Edge fast   = tracker.edge("fast", "x");
+		LatencyTracker.Edge slow   = tracker.edge("slow", "x");
+		LatencyTracker.Edge join   = tracker.edge("join", "a");
+		assertSame(input, tracker.edge("flow", "x"));
+
+		// flow input fans out to fast and slow, join waits for both
+		tracker.record(input, ctx, 1*MS,  2*MS,  3*MS);
+		tracker.record(fast,  ctx, 3*MS,  4*MS,  5*MS);
+		tracker.record(slow,  ctx, 3*MS,  9*MS, 20*MS);
+		tracker.record(join,  ctx, 20*MS, 22*MS, 23*MS);
+
+		List<LatencyTracker.Hop> path = tracker.criticalPath(ctx.getRequestId());
+		assertEquals(3, path.size());
+		assertSame(input, path.get(0).edge);
+		assertSame("slow branch should be on critical path", slow, path.get(1).edge);
+		assertSame(join, path.get(2).edge);
+		assertEquals(6*MS, path.get(1).queueWaitNanos());
+		assertEquals(11*MS, path.get(1).serviceNanos());
+
+		String breakdown = tracker.breakdown(ctx.getRequestId());
+		assertTrue(breakdown, breakdown.contains("queueWait=9000us service=13000us hops=3"));
+
+		assertEquals(1, slow.count());
+		assertEquals("slow should wait longest", slow, tracker.edges().get(0));
+		assertTrue(tracker.report().contains("slow:x"));
+	}
+
+	@Test
+	public void testOnlyRecentRequestsAreTracked() {
+		LatencyTracker tracker = new LatencyTracker(1);
+		LatencyTracker.Edge edge = tracker.edge("a", "x");
+		SimpleRequestContext ctx1 = new SimpleRequestContext();
+		SimpleRequestContext ctx2 = new SimpleRequestContext();
+		tracker.record(edge, ctx1, 0, 1*MS, 2*MS);
+		tracker.record(edge, ctx2, 0, 1*MS, 2*MS);
+		assertTrue(tracker.hops(ctx1.getRequestId()).isEmpty());
+		assertEquals(1, tracker.hops(ctx2.getRequestId()).size());
+		assertEquals("aggregates should include all requests", 2, edge.count());
+	}
+
+	@Test
+	public void testInputQueueTimestamps() throws InterruptedException {
+		InputQueue queue = new InputQueue(4);
+		InputQueue.Entry entry = new InputQueue.Entry();
+		DataMessage<Integer> message = new DataMessage<>(new SimpleRequestContext(), "x", 1);
+
+		queue.offer(message, "x");
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertEquals("not timestamped queue should not keep time", 0, entry.enqueueNanos);
+
+		queue.setTimestamped(true);
+		long before = System.nanoTime();
+		queue.offer(message, "x");
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertTrue(entry.enqueueNanos>=before && entry.enqueueNanos<=System.nanoTime());
+	}
+}
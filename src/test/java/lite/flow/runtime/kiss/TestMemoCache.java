@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PayloadAllocator;
+
+public class TestMemoCache {
+
+	@Test
+	public void testHitAndMiss() {
+		MemoCache cache = new MemoCache(10, 0);
+		MemoCache.Key key = cache.keyOf(new Object[] {1, "a", new int[] {2, 3}});
+		assertSame(MemoCache.MISS, cache.get(key));
+		cache.put(key, 42);
+
+		// equal arguments, different instances
+		MemoCache.Key sameKey = cache.keyOf(new Object[] {1, "a", new int[] {2, 3}});
+		assertEquals(42, cache.get(sameKey));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+
+		MemoCache.Key nullResultKey = cache.keyOf(new Object[] {2, null, null});
+		cache.put(nullResultKey, null);
+		assertNull("null result should be cached", cache.get(nullResultKey));
+	}
+
+	@Test
+	public void testKeyIsCopied() {
+		MemoCache cache = new MemoCache(10, 0);
+		Object[] args = {1, 2};
+		MemoCache.Key key = cache.keyOf(args);
+		cache.put(key, 3);
+		// pooled rows reuse argument arrays
+		args[0] = 7;
+		assertEquals(3, cache.get(cache.keyOf(new Object[] {1, 2})));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		MemoCache cache = new MemoCache(2, 0);
+		MemoCache.Key key1 = cache.keyOf(new Object[] {1});
+		MemoCache.Key key2 = cache.keyOf(new Object[] {2});
+		MemoCache.Key key3 = cache.keyOf(new Object[] {3});
+		cache.put(key1, 1);
+		cache.put(key2, 2);
+		cache.get(key1);
+		cache.put(key3, 3);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.evictions());
+		assertEquals(1, cache.get(key1));
+		assertSame(MemoCache.MISS, cache.get(key2));
+	}
+
+	@Test
+	public void testExpired() throws InterruptedException {
+		MemoCache cache = new MemoCache(10, 20);
+		MemoCache.Key key = cache.keyOf(new Object[] {1});
+		cache.put(key, 1);
+		Thread.sleep(50);
+		assertSame(MemoCache.MISS, cache.get(key));
+		assertEquals(1, cache.expired());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testPayloadIsNotCached() {
+		MemoCache cache = new MemoCache(10, 0);
+		OffHeapPayload payload = PayloadAllocator.DEFAULT.allocate(16);
+		assertNull(cache.keyOf(new Object[] {1, payload}));
+
+		cache.put(cache.keyOf(new Object[] {1}), payload);
+		assertEquals(0, cache.size());
+		payload.release();
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.MemoryBudget.Response;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestMemoryBudget {
+
+	@Test
+	public void testQueueCharges() throws InterruptedException {
+		MemoryBudget budget = new MemoryBudget(1000, SizeEstimator.DEFAULT, EnumSet.of(Response.REJECT_NEW_REQUESTS));
+		InputQueue queue = new InputQueue(10);
+		queue.setBudget(budget);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		queue.offer(new DataMessage<>(ctx, "a", new byte[1000]), "in");
+		assertEquals(MemoryBudget.MESSAGE_OVERHEAD + 16 + 1000, budget.usedBytes());
+		assertTrue(budget.isExceeded());
+		assertTrue(budget.rejectNewRequest());
+		assertEquals(1, budget.rejectedRequests());
+
+		InputQueue.Entry entry = new InputQueue.Entry();
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertEquals("charge should be released when message leaves queue", 0, budget.usedBytes());
+		assertFalse(budget.rejectNewRequest());
+		assertEquals(MemoryBudget.MESSAGE_OVERHEAD + 16 + 1000, budget.peakBytes());
+	}
+
+	@Test
+	public void testResponses() {
+		MemoryBudget budget = new MemoryBudget(10, SizeEstimator.DEFAULT, EnumSet.of(Response.EVICT_OLDEST_ROWS));
+		budget.charge(20);
+		assertFalse("rejection is not configured", budget.rejectNewRequest());
+		assertTrue(budget.shouldEvictRows());
+		budget.release(20);
+		assertFalse(budget.shouldEvictRows());
+	}
+}
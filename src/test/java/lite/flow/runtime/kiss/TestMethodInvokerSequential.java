@@ -0,0 +1,258 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static lite.flow.util.ActivityInspector.inspect;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.api.flow.define.Component;
+import lite.flow.runtime.kiss.data.DCMessage;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.OffHeapPayload;
+import lite.flow.runtime.kiss.data.PayloadAllocator;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.ActivityInspector.EntryPoint;
+import lite.flow.util.ActivityInspector.InspectResult;
+import lite.log.simple.SimpleLogFactory;
+
+public class TestMethodInvokerSequential {
+
+	public static class SlowLookup {
+		static volatile CountDownLatch release = new CountDownLatch(0);
+		static final AtomicInteger calls = new AtomicInteger();
+
+		public String lookup(String id) throws InterruptedException {
+			calls.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return "value-" + id;
+		}
+	}
+
+	public static class PayloadLoader {
+		static final PayloadAllocator allocator = new PayloadAllocator(1024*1024);
+		static final AtomicInteger calls = new AtomicInteger();
+
+		@Coalesce
+		public OffHeapPayload load(String id) throws InterruptedException {
+			calls.incrementAndGet();
+			SlowLookup.release.await(5, TimeUnit.SECONDS);
+			return allocator.copyOf(id.getBytes());
+		}
+	}
+
+	public static class CoalescedLookup {
+		static final AtomicInteger calls = new AtomicInteger();
+
+		@Coalesce
+		public String lookup(String id) throws InterruptedException {
+			calls.incrementAndGet();
+			SlowLookup.release.await(5, TimeUnit.SECONDS);
+			return "value-" + id;
+		}
+	}
+
+	static class ResultConsumer implements Consumer {
+		final BlockingQueue<DCMessage> results = new ArrayBlockingQueue<>(100);
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg) {
+			return results.add(dcmsg);
+		}
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg, String destinationName) {
+			return enqueue(dcmsg);
+		}
+
+		@Override
+		public boolean canBeEnqueued() {
+			return true;
+		}
+
+		Object poll() throws InterruptedException {
+			DCMessage result = results.poll(5, TimeUnit.SECONDS);
+			return result==null ? null : ((DataMessage<?>) result).data;
+		}
+	}
+
+	final ExecutorService executorService = Executors.newFixedThreadPool(2);
+	final BlockingExecutor blockingExecutor = new BlockingExecutor("test-blocking", 4, 10);
+	final ResultConsumer consumer = new ResultConsumer();
+	InspectResult inspectResult;
+	MethodInvokerSequential invoker;
+
+	@Before
+	public void create() throws ReflectiveOperationException {
+		SlowLookup.calls.set(0);
+		SlowLookup.release = new CountDownLatch(1);
+		invoker = invoker(SlowLookup.class);
+	}
+
+	@After
+	public void shutdown() {
+		SlowLookup.release.countDown();
+		blockingExecutor.shutdown();
+		executorService.shutdown();
+	}
+
+	MethodInvokerSequential invoker(Class<?> componentClazz) throws ReflectiveOperationException {
+		inspectResult = inspect(componentClazz);
+		Component component = new Component(componentClazz, componentClazz.getSimpleName(), 0, 0);
+		MethodInvokerSequential invoker = new MethodInvokerSequential(10, new FlowExecutionContext(null, componentClazz.getSimpleName())
+				, new SimpleLogFactory(), executorService, component, inspectResult.withoutExplicitOutputPort);
+		invoker.addDestination(inspectResult.entryPoints[0].outputName, consumer, "result");
+		return invoker;
+	}
+
+	void invoke(RequestContext requestContext, Object... args) {
+		invoke(invoker, inspectResult.entryPoints[0], requestContext, args);
+	}
+
+	/**
+	 * 	Invokes like correlator would, with complete arguments row.
+	 */
+	static void invoke(MethodInvokerSequential invoker, EntryPoint entryPoint, RequestContext requestContext, Object... args) {
+		CorrelatedEntryPointArguments row = new CorrelatedEntryPointArguments(requestContext.getRequestId(), entryPoint);
+		for (int i = 0; i < args.length; i++) {
+			String inputName = entryPoint.inputNames[i];
+			row.put(inputName, new DataMessage<>(requestContext, inputName, args[i]));
+		}
+		invoker.processDataMessage(new DataMessage<>(requestContext, "correlatedInputs", row), "correlatedInputs");
+	}
+
+	static void waitForCalls(int calls) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (SlowLookup.calls.get()<calls && System.currentTimeMillis()<deadline)
+			Thread.sleep(5);
+		assertEquals(calls, SlowLookup.calls.get());
+	}
+
+	void waitForInvocations() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (invoker.nrOfActiveCalls.get()>0 && System.currentTimeMillis()<deadline)
+			Thread.sleep(5);
+		assertEquals(0, invoker.nrOfActiveCalls.get());
+	}
+
+	@Test
+	public void testBlockingInvocationDoesNotHoldActivityThread() throws InterruptedException {
+		invoker.setBlockingExecutor(blockingExecutor, 1);
+
+		// second invocation waits for first, but caller is not blocked
+		invoke(new SimpleRequestContext(), "1");
+		invoke(new SimpleRequestContext(), "2");
+		waitForCalls(1);
+		assertNull("invocation should wait for release", consumer.results.poll(50, TimeUnit.MILLISECONDS));
+		assertEquals("maxConcurrency should be kept", 1, SlowLookup.calls.get());
+
+		SlowLookup.release.countDown();
+		assertEquals("value-1", consumer.poll());
+		assertEquals("value-2", consumer.poll());
+		assertEquals(2, SlowLookup.calls.get());
+	}
+
+	@Test
+	public void testCoalescedPayloadIsRetainedPerRequest() throws ReflectiveOperationException, InterruptedException {
+		PayloadLoader.calls.set(0);
+		invoker = invoker(PayloadLoader.class);
+		invoker.setBlockingExecutor(blockingExecutor, 1);
+
+		invoke(new SimpleRequestContext(), "id");
+		invoke(new SimpleRequestContext(), "id");
+		invoke(new SimpleRequestContext(), "id");
+		SlowLookup.release.countDown();
+
+		OffHeapPayload payload = (OffHeapPayload) consumer.poll();
+		assertSame("joined requests should get leader result", payload, consumer.poll());
+		assertSame(payload, consumer.poll());
+		waitForInvocations();
+		assertEquals(1, PayloadLoader.calls.get());
+		assertEquals(0, invoker.getSingleFlight(PayloadLoader.class.getMethod("load", String.class)).inFlight());
+
+		assertEquals("each received result should hold own reference", 3, payload.refCount());
+		assertFalse(payload.release());
+		assertFalse(payload.release());
+		assertTrue(payload.release());
+	}
+
+	@Test
+	public void testCancelledLeaderIsReplacedByJoinedRequest() throws ReflectiveOperationException, InterruptedException {
+		CoalescedLookup.calls.set(0);
+		invoker = invoker(CoalescedLookup.class);
+		invoker.setBlockingExecutor(blockingExecutor, 1);
+		Cancellations cancellations = new Cancellations();
+		invoker.setCancellations(cancellations);
+
+		// occupies only permit, so leader and joined requests wait
+		invoke(new SimpleRequestContext(), "busy");
+		RequestContext leader = new SimpleRequestContext();
+		RequestContext cancelledWaiter = new SimpleRequestContext();
+		RequestContext waiter = new SimpleRequestContext();
+		invoke(leader, "id");
+		invoke(cancelledWaiter, "id");
+		invoke(waiter, "id");
+		cancellations.cancel(leader.getRequestId());
+		cancellations.cancel(cancelledWaiter.getRequestId());
+		SlowLookup.release.countDown();
+
+		assertEquals("value-busy", consumer.poll());
+		DataMessage<?> result = (DataMessage<?>) consumer.results.poll(5, TimeUnit.SECONDS);
+		assertEquals("live joined request should get result", "value-id", result.data);
+		assertSame(waiter, result.context);
+		waitForInvocations();
+		assertEquals("cancelled requests should not be invoked", 2, CoalescedLookup.calls.get());
+		assertEquals(2, cancellations.skippedMessages());
+		assertEquals(0, invoker.getSingleFlight(CoalescedLookup.class.getMethod("lookup", String.class)).inFlight());
+		assertTrue("cancelled requests should get nothing", consumer.results.isEmpty());
+
+		invoke(new SimpleRequestContext(), "id");
+		assertEquals("same arguments should be invoked again", "value-id", consumer.poll());
+		assertEquals(3, CoalescedLookup.calls.get());
+	}
+
+	@Test
+	public void testLoggingIsCountedForEveryInvocation() throws InterruptedException {
+		ActivityProfiler profiler = new ActivityProfiler(1000);
+		invoker.setProfiler(profiler);
+		SlowLookup.release.countDown();
+
+		int nrOfCalls = 20;
+		for (int i = 0; i < nrOfCalls; i++)
+			invoke(new SimpleRequestContext(), "" + i);
+
+		ActivityProfiler.Stats entryPoint = null, logging = null;
+		for (ActivityProfiler.Stats stats : profiler.results())
+			if (stats.name.endsWith(".lookup"))
+				entryPoint = stats;
+			else if (stats.name.endsWith("/logging"))
+				logging = stats;
+		assertEquals(nrOfCalls, entryPoint.calls());
+		assertEquals("logging should be counted like entry point, not only when sampled", nrOfCalls, logging.calls());
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestObjectPool {
+
+	static class Item {
+		final ObjectPool<Item> pool;
+		Item(ObjectPool<Item> pool) {
+			this.pool = pool;
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		ObjectPool<Item> pool = new ObjectPool<>("items", Item::new, 4, false);
+		Item first = pool.acquire();
+		assertSame("item should know its pool", pool, first.pool);
+		pool.release(first);
+		assertSame("released item should be reused", first, pool.acquire());
+		assertEquals(1, pool.created());
+		assertEquals(1, pool.outstanding());
+	}
+
+	@Test
+	public void testLeakDetection() {
+		ObjectPool<Item> pool = new ObjectPool<>("items", Item::new, 4, true);
+		Item item = pool.acquire();
+		pool.acquire();
+		pool.release(item);
+		assertEquals(1, pool.leaks().size());
+		try {
+			pool.checkLeaks();
+			fail("not released item should be reported");
+		} catch (IllegalStateException e) {
+			assertNotNull("acquire site should be cause", e.getCause());
+		}
+		try {
+			pool.release(item);
+			fail("double release should be rejected");
+		} catch (IllegalStateException e) {
+		}
+	}
+}
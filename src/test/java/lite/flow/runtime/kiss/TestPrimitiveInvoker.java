@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.data.IntDataMessage;
+import lite.flow.runtime.kiss.data.PrimitiveDataMessage.Kind;
+
+public class TestPrimitiveInvoker {
+
+	public static class Calculator {
+		public int add(int a, int b) {
+			return a + b;
+		}
+		public double scale(double value, long factor) {
+			return value * factor;
+		}
+		public static long negate(long value) {
+			return -value;
+		}
+		public void fail(int value) {
+			throw new IllegalStateException("fail " + value);
+		}
+		public String name(int value) {
+			return "n" + value;
+		}
+	}
+
+	@Test
+	public void testIntArguments() throws Exception {
+		PrimitiveInvoker invoker = PrimitiveInvoker.forMethod(Calculator.class.getMethod("add", int.class, int.class));
+		assertNotNull(invoker);
+		assertEquals(Kind.INT, invoker.returnKind);
+		assertEquals(18, invoker.invoke(new Calculator(), new long[] {11, 7}));
+	}
+
+	@Test
+	public void testDoubleAndStatic() throws Exception {
+		PrimitiveInvoker scale = PrimitiveInvoker.forMethod(Calculator.class.getMethod("scale", double.class, long.class));
+		long bits = scale.invoke(new Calculator(), new long[] {Double.doubleToRawLongBits(1.5), 4});
+		assertEquals(6.0, Double.longBitsToDouble(bits), 0.0);
+
+		PrimitiveInvoker negate = PrimitiveInvoker.forMethod(Calculator.class.getMethod("negate", long.class));
+		assertEquals(-5, negate.invoke(null, new long[] {5}));
+	}
+
+	@Test
+	public void testNotPrimitive() throws Exception {
+		assertNull(PrimitiveInvoker.forMethod(Calculator.class.getMethod("name", int.class)));
+	}
+
+	@Test
+	public void testThrows() throws Exception {
+		PrimitiveInvoker invoker = PrimitiveInvoker.forMethod(Calculator.class.getMethod("fail", int.class));
+		assertNull("void method should not have return kind", invoker.returnKind);
+		try {
+			invoker.invoke(new Calculator(), new long[] {1});
+			fail("exception should be thrown");
+		} catch (InvocationTargetException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testMessageConversion() {
+		IntDataMessage msg = new IntDataMessage(null, "a", 7);
+		assertEquals(7, msg.bitsAs(Kind.LONG));
+		assertEquals(7.0, Double.longBitsToDouble(msg.bitsAs(Kind.DOUBLE)), 0.0);
+		assertEquals(Integer.valueOf(7).hashCode(), msg.valueHashCode());
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.DistributorOutput.Destination;
+import lite.flow.runtime.kiss.TestCancellations.RecordingActivity;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestRequestContextCarrier {
+
+	@Test
+	public void testNestedBindRestoresOuter() {
+		SimpleRequestContext outer = new SimpleRequestContext();
+		SimpleRequestContext inner = new SimpleRequestContext();
+		assertNull(RequestContextCarrier.getRequestContext());
+
+		RequestContext previousOuter = RequestContextCarrier.bind(outer);
+		try {
+			RequestContext previousInner = RequestContextCarrier.bind(inner);
+			try {
+				assertSame(outer, previousInner);
+				assertSame(inner, RequestContextCarrier.getRequestContext());
+			} finally {
+				RequestContextCarrier.restore(previousInner);
+			}
+			assertSame("outer context should be restored", outer, RequestContextCarrier.getRequestContext());
+		} finally {
+			RequestContextCarrier.restore(previousOuter);
+		}
+		assertNull(RequestContextCarrier.getRequestContext());
+	}
+
+	@Test
+	public void testWrapCarriesContextToOtherThread() throws Exception {
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			RequestContext previous = RequestContextCarrier.bind(ctx);
+			try {
+				assertSame(ctx, executor.submit(RequestContextCarrier.wrap(RequestContextCarrier::getRequestContext)).get(5, TimeUnit.SECONDS));
+			} finally {
+				RequestContextCarrier.restore(previous);
+			}
+			AtomicReference<RequestContext> seen = new AtomicReference<>();
+			executor.submit(RequestContextCarrier.wrap(() -> seen.set(RequestContextCarrier.getRequestContext()))).get(5, TimeUnit.SECONDS);
+			assertNull("context is captured when wrapped", seen.get());
+			assertNull("executor thread context should be restored", executor.submit(RequestContextCarrier::getRequestContext).get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testEmitUsesBoundContext() throws InterruptedException {
+		RecordingActivity activity = new RecordingActivity();
+		DistributorOutput<String> output = new DistributorOutput<>("out");
+		output.addDestination(new Destination("in", activity));
+		SimpleRequestContext ctx = new SimpleRequestContext();
+
+		try {
+			output.emit("unbound");
+			fail("emit without bound context should fail");
+		} catch (IllegalStateException expected) {
+		}
+
+		RequestContext previous = RequestContextCarrier.bind(ctx);
+		try {
+			output.emit("bound");
+		} finally {
+			RequestContextCarrier.restore(previous);
+		}
+		InputQueue.Entry entry = new InputQueue.Entry();
+		assertTrue(activity.getInputQueue().poll(entry, 0, TimeUnit.MILLISECONDS));
+		assertSame(ctx, entry.message.getContext());
+	}
+}
@@ -1,8 +1,14 @@
 package lite.flow.runtime.kiss;
 
+import static lite.flow.util.ActivityInspector.inspect;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.ConsoleHandler;
@@ -24,6 +30,7 @@ import lite.flow.example.component.StringSplitter;
 import lite.flow.runtime.kiss.data.DCMessage;
 import lite.flow.runtime.kiss.data.DataMessage;
 import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.ActivityInspector.EntryPoint;
 import lite.log.simple.SimpleLogFactory;
 import lite.log.simple.StructFormatter;
 
@@ -128,6 +135,39 @@ public class TestRunnableComponent {
 		Thread.sleep(700);
 	}
 
+	public static class Calculator {
+		public int add(int a, int b) {
+			return a + b;
+		}
+		public int scale(int a, int factor) {
+			return a * factor;
+		}
+	}
+
+	@Test
+	public void testRoutes() {
+		FlowExecutionContext executionContext = new FlowExecutionContext(null, "Calculator");
+		EntryPoint[] entryPoints = inspect(Calculator.class).entryPoints;
+		Correlator[] correlators = new Correlator[entryPoints.length];
+		Correlator add = null, scale = null;
+		for (int i = 0; i < entryPoints.length; i++) {
+			correlators[i] = new Correlator(20, executionContext, entryPoints[i], logFactory);
+			if (entryPoints[i].method.getName().equals("add"))
+				add = correlators[i];
+			else if (entryPoints[i].method.getName().equals("scale"))
+				scale = correlators[i];
+		}
+
+		Map<String, Correlator[]> routes = RunnableComponent.createRoutes(entryPoints, correlators);
+		assertEquals(3, routes.size());
+		assertEquals("input used by two entry points", 2, routes.get("a").length);
+		assertTrue(Arrays.asList(routes.get("a")).contains(add));
+		assertTrue(Arrays.asList(routes.get("a")).contains(scale));
+		assertArrayEquals(new Correlator[] {add}, routes.get("b"));
+		assertArrayEquals(new Correlator[] {scale}, routes.get("factor"));
+		assertNull("input used by no entry point has no route", routes.get("unknown"));
+	}
+
     public DataSource createDataSource() throws ClassNotFoundException, SQLException {
     	
     	BasicDataSource basicDataSource = new BasicDataSource();
@@ -114,6 +114,30 @@ public class TestRunnableFlow {
 //		Thread.sleep(90000);
 	}
 
+	@Test
+	public void testFlowOutputDistribution() throws ReflectiveOperationException, InterruptedException {
+		ExecutorService executorService = Executors.newFixedThreadPool(6);
+
+		Flow flow = ConvertAddNumbersFlow.flow;
+		FlowExecutionContext executionContext = new FlowExecutionContext(flow, "");
+		RunnableFlow runnableFlow = new RunnableFlow(20, executionContext, logFactory, flow);
+
+		BlockingQueue<DCMessage> first = new ArrayBlockingQueue<>(5);
+		BlockingQueue<DCMessage> second = new ArrayBlockingQueue<>(5);
+		runnableFlow.addDestination("number", new TestConsumer("first", first), "numResult");
+		runnableFlow.addDestination("number", new TestConsumer("second", second), "numResult");
+		// flow used as connection source, strategy goes to activity producing flow output
+		runnableFlow.setDistribution("number", DistributionStrategy.roundRobin());
+
+		executorService.execute(runnableFlow);
+		assertTrue(runnableFlow.enqueue(new DataMessage<>(new SimpleRequestContext(), "str", "11;8")));
+		assertTrue(runnableFlow.enqueue(new DataMessage<>(new SimpleRequestContext(), "str", "1;2")));
+
+		assertNotNull("round robin should use first destination", first.poll(900, TimeUnit.MILLISECONDS));
+		assertNotNull("round robin should use second destination", second.poll(900, TimeUnit.MILLISECONDS));
+		executorService.shutdownNow();
+	}
+
 	@Test
 	public void testStressFlow() throws ReflectiveOperationException, InterruptedException {
 		setupLogging(Level.WARNING);
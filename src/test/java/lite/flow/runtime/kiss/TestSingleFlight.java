@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import lite.flow.api.activity.RequestContext;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestSingleFlight {
+
+	@Test
+	public void testEqualArgumentsJoinLeader() {
+		SingleFlight singleFlight = new SingleFlight();
+		RequestContext ctx1 = new SimpleRequestContext();
+		RequestContext ctx2 = new SimpleRequestContext();
+		RequestContext ctx3 = new SimpleRequestContext();
+		RequestContext other = new SimpleRequestContext();
+
+		assertFalse("first request should lead", singleFlight.join(MemoCache.Key.of(new Object[] {"id", 1}), ctx1));
+		assertTrue(singleFlight.join(MemoCache.Key.of(new Object[] {"id", 1}), ctx2));
+		assertTrue(singleFlight.join(MemoCache.Key.of(new Object[] {"id", 1}), ctx3));
+		assertFalse("different arguments should lead", singleFlight.join(MemoCache.Key.of(new Object[] {"id", 2}), other));
+		assertEquals(2, singleFlight.inFlight());
+
+		List<RequestContext> waiters = singleFlight.complete(MemoCache.Key.of(new Object[] {"id", 1}));
+		assertEquals(2, waiters.size());
+		assertSame(ctx2, waiters.get(0));
+		assertSame(ctx3, waiters.get(1));
+		assertEquals(2, singleFlight.leaders());
+		assertEquals(2, singleFlight.coalesced());
+
+		// nothing is kept after completion
+		assertFalse(singleFlight.join(MemoCache.Key.of(new Object[] {"id", 1}), ctx1));
+		assertTrue(singleFlight.complete(MemoCache.Key.of(new Object[] {"id", 1})).isEmpty());
+	}
+
+	@Test
+	public void testFirstJoinedRequestIsPromoted() {
+		SingleFlight singleFlight = new SingleFlight();
+		RequestContext ctx1 = new SimpleRequestContext();
+		RequestContext ctx2 = new SimpleRequestContext();
+		RequestContext ctx3 = new SimpleRequestContext();
+		MemoCache.Key key = MemoCache.Key.of(new Object[] {"id"});
+
+		assertFalse(singleFlight.join(key, ctx1));
+		assertTrue(singleFlight.join(key, ctx2));
+		assertTrue(singleFlight.join(key, ctx3));
+
+		assertSame(ctx2, singleFlight.promote(key));
+		assertEquals("promoted request should keep flight", 1, singleFlight.inFlight());
+		assertSame(ctx3, singleFlight.promote(key));
+		assertNull("without joined requests flight is completed", singleFlight.promote(key));
+		assertEquals(0, singleFlight.inFlight());
+		assertEquals(1, singleFlight.leaders());
+	}
+}
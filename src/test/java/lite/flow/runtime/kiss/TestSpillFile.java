@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.IntDataMessage;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+
+public class TestSpillFile {
+
+	final static Path SPILL_LOCATION = Paths.get("target/spill");
+
+	@Test
+	public void testOverflowKeepsOrder() throws IOException, InterruptedException {
+		InputQueue queue = new InputQueue(2);
+		// small segments force segment rolling
+		SpillFile spillFile = new SpillFile(SPILL_LOCATION, "order" + System.nanoTime(), 1024, 1024*1024, SpillFile.JAVA_SERIALIZATION);
+		queue.setOverflow(spillFile);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		int nrOfMessages = 20;
+		for (int i = 0; i < nrOfMessages; i++)
+			assertTrue("message should be accepted", queue.offer(new DataMessage<>(ctx, "a", "value" + i), "in"));
+		queue.offer(new IntDataMessage(ctx, "b", 42), "in");
+
+		assertEquals(nrOfMessages + 1, queue.size());
+		assertTrue("messages should be spilled", spillFile.spilled.get()>0);
+
+		InputQueue.Entry entry = new InputQueue.Entry();
+		for (int i = 0; i < nrOfMessages; i++) {
+			assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+			assertEquals("in", entry.inputName);
+			assertEquals("value" + i, ((DataMessage<?>) entry.message).data);
+		}
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertEquals(42, ((IntDataMessage) entry.message).value);
+		assertEquals(ctx.getRequestId(), entry.message.getContext().getRequestId());
+		assertEquals(0, queue.size());
+		spillFile.close();
+	}
+
+	@Test
+	public void testDiskLimit() throws IOException {
+		InputQueue queue = new InputQueue(1);
+		SpillFile spillFile = new SpillFile(SPILL_LOCATION, "limit" + System.nanoTime(), 1024, 1024, SpillFile.JAVA_SERIALIZATION);
+		queue.setOverflow(spillFile);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		int accepted = 0;
+		for (int i = 0; i < 100; i++)
+			if (queue.offer(new DataMessage<>(ctx, "a", "value" + i), "in"))
+				accepted++;
+
+		assertTrue("disk limit should reject messages, accepted " + accepted, accepted<100);
+		assertEquals(100 - accepted, spillFile.rejected.get());
+		spillFile.close();
+	}
+
+	@Test
+	public void testReadSegmentsAreDeleted() throws IOException, InterruptedException {
+		InputQueue queue = new InputQueue(1);
+		String baseName = "delete" + System.nanoTime();
+		SpillFile spillFile = new SpillFile(SPILL_LOCATION, baseName, 1024, 1024*1024, SpillFile.JAVA_SERIALIZATION);
+		queue.setOverflow(spillFile);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		for (int i = 0; i < 30; i++)
+			assertTrue(queue.offer(new DataMessage<>(ctx, "a", "value" + i), "in"));
+		assertTrue("several segments should be used", segmentFiles(baseName)>2);
+
+		InputQueue.Entry entry = new InputQueue.Entry();
+		for (int i = 0; i < 30; i++)
+			assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertTrue("read segments should be deleted", segmentFiles(baseName)<=1);
+		spillFile.close();
+		assertEquals(0, segmentFiles(baseName));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDiskLimitSmallerThanSegment() throws IOException {
+		new SpillFile(SPILL_LOCATION, "invalid" + System.nanoTime(), 1024, 512, SpillFile.JAVA_SERIALIZATION);
+	}
+
+	@Test
+	public void testMessageLargerThanSegmentIsRejected() throws IOException, InterruptedException {
+		InputQueue queue = new InputQueue(1);
+		String baseName = "large" + System.nanoTime();
+		SpillFile spillFile = new SpillFile(SPILL_LOCATION, baseName, 1024, 1024*1024, SpillFile.JAVA_SERIALIZATION);
+		queue.setOverflow(spillFile);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		assertTrue(queue.offer(new DataMessage<>(ctx, "a", "small"), "in"));
+		assertFalse("message larger than segment should be rejected", queue.offer(new DataMessage<>(ctx, "a", new byte[2048]), "in"));
+		assertEquals(1, spillFile.rejected.get());
+		assertEquals("no segment should be created for rejected message", 0, segmentFiles(baseName));
+
+		assertTrue("smaller message should still be spilled", queue.offer(new DataMessage<>(ctx, "a", "next"), "in"));
+		InputQueue.Entry entry = new InputQueue.Entry();
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertEquals("small", ((DataMessage<?>) entry.message).data);
+		assertTrue(queue.poll(entry, 1, TimeUnit.SECONDS));
+		assertEquals("next", ((DataMessage<?>) entry.message).data);
+		spillFile.close();
+	}
+
+	private static int segmentFiles(String baseName) throws IOException {
+		int count = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(SPILL_LOCATION, baseName + "-*.spill")) {
+			for (@SuppressWarnings("unused") Path file : files)
+				count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+public class TestLongIdGenerator {
+
+	@Test
+	public void testUniqueAcrossThreads() throws InterruptedException {
+		LongIdGenerator generator = new LongIdGenerator(0, 16);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		int nrOfThreads = 4;
+		int idsPerThread = 10000;
+
+		Thread[] threads = new Thread[nrOfThreads];
+		for (int t = 0; t < nrOfThreads; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < idsPerThread; i++)
+					assertTrue(ids.add(generator.nextId()));
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals("all ids should be unique", nrOfThreads*idsPerThread, ids.size());
+	}
+
+	@Test
+	public void testNodePrefix() {
+		LongIdGenerator generator = new LongIdGenerator(5, 16);
+		long id = generator.nextId();
+		assertTrue("id should be positive", id>0);
+		assertEquals(5, LongIdGenerator.nodeId(id));
+	}
+
+	@Test
+	public void testLongUniqueIdEquality() {
+		Set<LongUniqueId> ids = new HashSet<>();
+		ids.add(new LongUniqueId(42));
+		assertTrue(ids.contains(new LongUniqueId(42)));
+		LongUniqueId id = new LongUniqueId(42);
+		assertSame("string form should be cached", id.getIdValue(), id.getIdValue());
+	}
+}
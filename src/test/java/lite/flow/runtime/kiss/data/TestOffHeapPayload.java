@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.Consumer;
+import lite.flow.runtime.kiss.DistributorOutput;
+import lite.flow.runtime.kiss.DistributorOutput.Destination;
+
+public class TestOffHeapPayload {
+
+	@Test
+	public void testReferenceCounting() {
+		PayloadAllocator allocator = new PayloadAllocator(1024*1024);
+		OffHeapPayload payload = allocator.copyOf(new byte[] {1, 2, 3});
+		assertEquals(3, payload.length());
+		assertEquals(2, payload.buffer().get(1));
+
+		payload.retain();
+		assertFalse(payload.release());
+		assertTrue("last release should free payload", payload.release());
+		try {
+			payload.buffer();
+			fail("freed payload should not be accessible");
+		} catch (IllegalStateException e) {
+		}
+
+		long allocated = allocator.allocatedBytes();
+		allocator.allocate(100).release();
+		assertEquals("freed memory should be reused", allocated, allocator.allocatedBytes());
+	}
+
+	@Test
+	public void testDistributorRetainsPerDestination() {
+		List<DCMessage> received = new ArrayList<>();
+		Consumer accepting = new Consumer() {
+			@Override
+			public boolean enqueue(DCMessage dcmsg) {
+				received.add(dcmsg);
+				return true;
+			}
+			@Override
+			public boolean canBeEnqueued() {
+				return true;
+			}
+		};
+		Consumer rejecting = new Consumer() {
+			@Override
+			public boolean enqueue(DCMessage dcmsg) {
+				return false;
+			}
+			@Override
+			public boolean canBeEnqueued() {
+				return false;
+			}
+		};
+
+		DistributorOutput<OffHeapPayload> output = new DistributorOutput<>("out");
+		output.addDestination(new Destination("a", accepting));
+		output.addDestination(new Destination("b", accepting));
+		output.addDestination(new Destination("c", rejecting));
+
+		OffHeapPayload payload = new PayloadAllocator(1024*1024).allocate(10);
+		output.emit(payload, new SimpleRequestContext());
+
+		assertEquals(2, received.size());
+		assertEquals("each accepting destination should hold one reference", 2, payload.refCount());
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.Test;
+
+public class TestBatchingJdbcWriter {
+
+    final static String DB_LOCATION = "target/batchdb";
+
+	@Test
+	public void testGroupCommit() throws SQLException, InterruptedException, ExecutionException {
+		DataSource dataSource = createDataSource();
+		String table = "BATCH" + System.currentTimeMillis();
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate("CREATE TABLE " + table + " (ID INT PRIMARY KEY, NAME VARCHAR(40))");
+		}
+
+		int nrOfRows = 500;
+		long start = System.nanoTime();
+		List<CompletableFuture<Integer>> results = new ArrayList<>();
+		try (BatchingJdbcWriter writer = new BatchingJdbcWriter(dataSource, 100, 20, TimeUnit.MILLISECONDS)) {
+			for (int i = 0; i < nrOfRows; i++)
+				results.add(writer.execute("INSERT INTO " + table + " (ID, NAME) VALUES (?, ?)", i, "name" + i));
+			// duplicate key, only this request should fail
+			CompletableFuture<Integer> duplicate = writer.execute("INSERT INTO " + table + " (ID, NAME) VALUES (?, ?)", 1, "duplicate");
+
+			for (CompletableFuture<Integer> result : results)
+				assertEquals(Integer.valueOf(1), result.get());
+			try {
+				duplicate.get();
+				fail("duplicate insert should fail");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SQLException);
+			}
+
+			System.out.println(writer + " took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+			assertTrue("statements should be grouped, " + writer, writer.batches.get() < nrOfRows/10);
+		}
+
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			rs.next();
+			assertEquals(nrOfRows, rs.getInt(1));
+		}
+	}
+
+	@Test
+	public void testInterruptWritesCollectedStatements() throws SQLException, InterruptedException, ExecutionException, TimeoutException {
+		DataSource dataSource = createDataSource();
+		String table = "INTERRUPT" + System.currentTimeMillis();
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate("CREATE TABLE " + table + " (ID INT PRIMARY KEY)");
+		}
+
+		// long delay, so writer is collecting group when interrupted
+		BatchingJdbcWriter writer = new BatchingJdbcWriter(dataSource, 100, 10, TimeUnit.SECONDS);
+		CompletableFuture<Integer> collected = writer.execute("INSERT INTO " + table + " (ID) VALUES (?)", 1);
+		Thread.sleep(200);
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+			if (thread.getName().equals("BatchingJdbcWriter"))
+				thread.interrupt();
+		assertEquals("collected statement should be written", Integer.valueOf(1), collected.get(5, TimeUnit.SECONDS));
+
+		writer.close();
+		try {
+			writer.execute("INSERT INTO " + table + " (ID) VALUES (?)", 2).get(5, TimeUnit.SECONDS);
+			fail("statement after close should fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+	}
+
+    public DataSource createDataSource() {
+    	BasicDataSource basicDataSource = new BasicDataSource();
+    	basicDataSource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+    	basicDataSource.setUrl("jdbc:derby:" + DB_LOCATION + ";create=true");
+    	return basicDataSource;
+    }
+}
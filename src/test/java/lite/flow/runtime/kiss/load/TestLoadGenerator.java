@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.flow.runtime.kiss.load;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.Consumer;
+import lite.flow.runtime.kiss.RunnableActivity;
+import lite.flow.runtime.kiss.data.DCMessage;
+
+public class TestLoadGenerator {
+
+	/**
+	 * 	Returns input as output, first message stalls for stallMillis.
+	 */
+	static class EchoActivity implements RunnableActivity {
+		final BlockingQueue<DCMessage> queue;
+		final long stallMillis;
+		volatile Consumer destination;
+
+		EchoActivity(int capacity, long stallMillis) {
+			this.queue = new ArrayBlockingQueue<>(capacity);
+			this.stallMillis = stallMillis;
+		}
+
+		@Override
+		public boolean enqueue(DCMessage dcmsg) {
+			return queue.offer(dcmsg);
+		}
+
+		@Override
+		public boolean canBeEnqueued() {
+			return queue.remainingCapacity()>0;
+		}
+
+		@Override
+		public void addDestination(String ouputName, Consumer consumer, String destinationName) {
+			this.destination = consumer;
+		}
+
+		@Override
+		public void run() {
+			boolean first = true;
+			try {
+				while (true) {
+					DCMessage dcmsg = queue.take();
+					if (first && stallMillis>0)
+						Thread.sleep(stallMillis);
+					first = false;
+					destination.enqueue(dcmsg);
+				}
+			} catch (InterruptedException e) {
+				// stopped
+			}
+		}
+	}
+
+	@Test
+	public void testFixedRate() throws InterruptedException {
+		EchoActivity echo = new EchoActivity(1000, 0);
+		Thread thread = new Thread(echo);
+		thread.start();
+		LoadGenerator generator = new LoadGenerator(echo, "x", "y", i -> i);
+		LoadGenerator.LoadResult result = generator.run(500, 1, TimeUnit.SECONDS);
+		thread.interrupt();
+
+		assertEquals(500, result.sent);
+		assertEquals(500, result.completed);
+		assertEquals(0, result.dropped);
+		assertEquals(0, result.lost);
+		assertTrue(result.toString(), result.throughput>400 && result.throughput<600);
+	}
+
+	@Test
+	public void testStallIsNotOmitted() throws InterruptedException {
+		EchoActivity echo = new EchoActivity(1000, 200);
+		Thread thread = new Thread(echo);
+		thread.start();
+		LoadGenerator generator = new LoadGenerator(echo, "x", "y", i -> i);
+		LoadGenerator.LoadResult result = generator.run(500, 1, TimeUnit.SECONDS);
+		thread.interrupt();
+
+		assertEquals(500, result.completed);
+		// about 100 requests are sent during stall, latency from intended send time is 0 - 200 ms
+		assertTrue(result.toString(), result.p90>=50_000);
+		assertTrue(result.toString(), result.max>=150_000);
+	}
+
+	@Test
+	public void testDroppedAndLost() throws InterruptedException {
+		// not started, queue is filled and nothing completes
+		EchoActivity echo = new EchoActivity(10, 0);
+		LoadGenerator generator = new LoadGenerator(echo, "x", "y", i -> i, 100);
+		LoadGenerator.LoadResult result = generator.run(1000, 50, TimeUnit.MILLISECONDS);
+
+		assertEquals(50, result.sent);
+		assertEquals(40, result.dropped);
+		assertEquals(10, result.lost);
+		assertEquals(0, result.completed);
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.binary;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+public class TestBinaryEventHandler {
+
+	final static Path LOG_LOCATION = Paths.get("target/binlog");
+
+	@Test
+	public void testWriteAndDecode() throws IOException {
+		String baseName = "events" + System.nanoTime();
+		// small segment size forces rolling
+		int segmentSize = EventRecordLayout.HEADER_SIZE + 3*EventRecordLayout.RECORD_SIZE;
+		BinaryEventHandler handler = new BinaryEventHandler(LOG_LOCATION, baseName, segmentSize, true);
+
+		FlowExecutionContext executionContext = new FlowExecutionContext(null, "Adder");
+		SimpleRequestContext ctx1 = new SimpleRequestContext();
+		SimpleRequestContext ctx2 = new SimpleRequestContext();
+		for (SimpleRequestContext ctx : new SimpleRequestContext[] {ctx1, ctx2}) {
+			StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, new LongUniqueId(7), "a", 11);
+			startEvent.setSourceClassName("lite.flow.example.component.Adder");
+			startEvent.setSourceMethodName("add");
+			handler.publish(startEvent);
+			EndEvent endEvent = new EndEvent(Level.INFO, "", startEvent, "result", 19);
+			endEvent.setSourceClassName("lite.flow.example.component.Adder");
+			endEvent.setSourceMethodName("add");
+			handler.publish(endEvent);
+		}
+		handler.close();
+
+		assertTrue("second segment should exist", Files.exists(LOG_LOCATION.resolve(EventRecordLayout.segmentFileName(baseName, 2))));
+
+		StringBuilder all = new StringBuilder();
+		int count = BinaryEventDecoder.decode(LOG_LOCATION, baseName, BinaryEventDecoder.ALL_REQUESTS, all);
+		assertEquals("all records should be decoded", 4, count);
+		assertTrue("decoded should contain activity", all.toString().contains("ectx[flow=null, activity=Adder]"));
+		assertTrue("decoded should contain Start", all.toString().contains(" Start7 hash="));
+		assertTrue("decoded should contain End", all.toString().contains("   End7 hash="));
+
+		StringBuilder one = new StringBuilder();
+		long rid = EventRecordLayout.idToLong(ctx2.getRequestId());
+		count = BinaryEventDecoder.decode(LOG_LOCATION, baseName, rid, one);
+		assertEquals("only ctx2 records should be decoded", 2, count);
+		assertTrue("decoded should contain request id", one.toString().contains("rctx[rid=" + rid + "]"));
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.intercept;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.data.DataMessage;
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.api.LogFactory;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+public class TestInterceptSupport {
+
+	public static class CollectingHandler extends Handler {
+		public final List<LogRecord> records = new ArrayList<>();
+		@Override
+		public void publish(LogRecord record) {
+			records.add(record);
+		}
+		@Override
+		public void flush() {
+		}
+		@Override
+		public void close() throws SecurityException {
+		}
+	}
+
+	public static LogFactory createLogFactory(Level level, Handler handler) {
+		Logger log = Logger.getAnonymousLogger();
+		log.setLevel(level);
+		log.setUseParentHandlers(false);
+		log.addHandler(handler);
+		return new LogFactory() {
+			final AtomicLong idgen = new AtomicLong(0);
+			@Override
+			public UniqueId newCid() {
+				return new LongUniqueId(idgen.incrementAndGet());
+			}
+			@Override
+			public Logger logger() {
+				return log;
+			}
+		};
+	}
+
+	final FlowExecutionContext executionContext = new FlowExecutionContext(null, "intercepted");
+	final SimpleRequestContext ctx = new SimpleRequestContext();
+	final Object[] arguments = {new DataMessage<>(ctx, "a", 7)};
+
+	public Object process(DataMessage<?> dataMessage) {
+		return dataMessage.data;
+	}
+
+	private Method processMethod() throws NoSuchMethodException {
+		return getClass().getMethod("process", DataMessage.class);
+	}
+
+	@Test
+	public void testStartAndEndAreLogged() throws Exception {
+		CollectingHandler handler = new CollectingHandler();
+		LogFactory logFactory = createLogFactory(Level.FINE, handler);
+
+		Object result = InterceptSupport.invoke(Level.FINE, executionContext, logFactory, () -> 7, arguments, processMethod(), getClass());
+		assertEquals(7, result);
+		assertEquals(2, handler.records.size());
+		StartEvent startEvent = (StartEvent) handler.records.get(0);
+		assertSame("request context should be taken from message", ctx, startEvent.requestContext);
+		assertEquals("process", startEvent.getSourceMethodName());
+		assertTrue(handler.records.get(1) instanceof EndEvent);
+	}
+
+	@Test
+	public void testOnlyFailureIsLoggedAtDefaultLevel() throws Exception {
+		CollectingHandler handler = new CollectingHandler();
+		LogFactory logFactory = createLogFactory(Level.INFO, handler);
+
+		assertEquals(7, InterceptSupport.invoke(Level.FINE, executionContext, logFactory, () -> 7, arguments, processMethod(), getClass()));
+		assertTrue("successful call should not be logged", handler.records.isEmpty());
+
+		IllegalStateException failure = new IllegalStateException("test");
+		try {
+			InterceptSupport.invoke(Level.FINE, executionContext, logFactory, () -> {throw failure;}, arguments, processMethod(), getClass());
+			fail("failure should be thrown");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+		assertEquals("failure should be logged", 1, handler.records.size());
+		EndEvent endEvent = (EndEvent) handler.records.get(0);
+		assertEquals(Level.WARNING, endEvent.getLevel());
+		assertSame(failure, endEvent.getThrown());
+		assertSame(ctx, endEvent.requestContext);
+		assertSame(executionContext, endEvent.executionContext);
+		assertEquals("process", endEvent.getSourceMethodName());
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.intercept;
+
+import static org.junit.Assert.*;
+
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.log.api.ExecutionContext;
+import lite.log.api.Log;
+import lite.log.api.LogFactory;
+import lite.log.api.Loggable;
+import lite.log.api.event.StartEvent;
+import lite.log.intercept.TestInterceptSupport.CollectingHandler;
+
+public class TestModifier {
+
+	public static class Counter implements Loggable {
+
+		private final ExecutionContext executionContext;
+		private final LogFactory logFactory;
+		private int count;
+
+		public Counter(ExecutionContext executionContext, LogFactory logFactory) {
+			super();
+			// called before logFactory is set, not logged
+			reset();
+			this.executionContext = executionContext;
+			this.logFactory = logFactory;
+		}
+
+		@Log
+		public void reset() {
+			count = 0;
+		}
+
+		@Log
+		public int add(int value) {
+			count += value;
+			return count;
+		}
+
+		@Override
+		public ExecutionContext getExecutionContext() {
+			return executionContext;
+		}
+
+		@Override
+		public LogFactory getLogFactory() {
+			return logFactory;
+		}
+	}
+
+	@Test
+	public void testLoggableSubclassIsShared() throws ReflectiveOperationException {
+		CollectingHandler handler = new CollectingHandler();
+		LogFactory logFactory = TestInterceptSupport.createLogFactory(Level.FINE, handler);
+		FlowExecutionContext contextA = new FlowExecutionContext(null, "a");
+		FlowExecutionContext contextB = new FlowExecutionContext(null, "b");
+
+		Counter counterA = Modifier.addLogging(Counter.class, contextA, logFactory).newInstance(contextA, logFactory);
+		Counter counterB = Modifier.addLogging(Counter.class, contextB, logFactory).newInstance(contextB, logFactory);
+		assertNotSame(Counter.class, counterA.getClass());
+		assertSame("one logging subclass per class", counterA.getClass(), counterB.getClass());
+		assertTrue("calls from constructor should not be logged", handler.records.isEmpty());
+
+		assertEquals(3, counterA.add(3));
+		assertEquals(5, counterB.add(5));
+		assertEquals(4, handler.records.size());
+		assertSame("instance own context should be used", contextA, ((StartEvent) handler.records.get(0)).executionContext);
+		assertSame("instance own context should be used", contextB, ((StartEvent) handler.records.get(2)).executionContext);
+	}
+}
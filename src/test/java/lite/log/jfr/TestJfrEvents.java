@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.jfr;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.log.api.event.StartEvent;
+
+public class TestJfrEvents {
+
+	final static Path RECORDING_LOCATION = Paths.get("target/jfr");
+
+	@Test
+	public void testFlowAndLogEventsAreRecorded() throws IOException {
+		Files.createDirectories(RECORDING_LOCATION);
+		Path file = RECORDING_LOCATION.resolve("flow" + System.nanoTime() + ".jfr");
+		FlowExecutionContext executionContext = new FlowExecutionContext(null, "Adder");
+		SimpleRequestContext ctx = new SimpleRequestContext();
+
+		try (Recording recording = new Recording()) {
+			recording.enable("lite.flow.QueueWait");
+			recording.enable("lite.flow.Invocation");
+			recording.enable("lite.flow.Log");
+			recording.start();
+
+			JfrFlowEvents.queueWait(executionContext, "a", ctx, 1234);
+			Object invocation = JfrFlowEvents.beginInvocation();
+			assertNotNull("enabled invocation event should be created", invocation);
+			JfrFlowEvents.endInvocation(invocation, executionContext, "lite.flow.example.component.Adder", "add", ctx, false);
+
+			StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, new LongUniqueId(7), "a", 11);
+			startEvent.setSourceMethodName("add");
+			new JfrEventHandler().publish(startEvent);
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		RecordedEvent queueWait = find(events, "lite.flow.QueueWait");
+		assertEquals("a", queueWait.getString("input"));
+		assertEquals(1234, queueWait.getDuration("wait").toNanos());
+		assertEquals("ectx[flow=null, activity=Adder]", queueWait.getString("activity"));
+
+		RecordedEvent invocation = find(events, "lite.flow.Invocation");
+		assertEquals("add", invocation.getString("method"));
+		assertFalse(invocation.getBoolean("failed"));
+
+		RecordedEvent log = find(events, "lite.flow.Log");
+		assertEquals("Start", log.getString("type"));
+		assertEquals(7, log.getLong("cid"));
+		assertEquals("add", log.getString("sourceMethod"));
+	}
+
+	private static RecordedEvent find(List<RecordedEvent> events, String name) {
+		for (RecordedEvent event : events)
+			if (event.getEventType().getName().equals(name))
+				return event;
+		fail(name + " should be recorded");
+		return null;
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.sampling;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.flow.util.UniqueId;
+import lite.log.api.LogFactory;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+public class TestSamplingLogger {
+
+	static class CollectingHandler extends Handler {
+		final List<LogRecord> records = new ArrayList<>();
+		@Override
+		public void publish(LogRecord record) {
+			records.add(record);
+		}
+		@Override
+		public void flush() {
+		}
+		@Override
+		public void close() throws SecurityException {
+		}
+	}
+
+	final FlowExecutionContext executionContext = new FlowExecutionContext(null, "Adder");
+
+	private SamplingLogFactory createLogFactory(SamplingPolicy policy, CollectingHandler handler) {
+		Logger log = Logger.getAnonymousLogger();
+		log.setLevel(Level.FINEST);
+		log.setUseParentHandlers(false);
+		log.addHandler(handler);
+		LogFactory logFactory = new LogFactory() {
+			final AtomicLong idgen = new AtomicLong(0);
+			@Override
+			public UniqueId newCid() {
+				return new LongUniqueId(idgen.incrementAndGet());
+			}
+			@Override
+			public Logger logger() {
+				return log;
+			}
+		};
+		return new SamplingLogFactory(logFactory, policy);
+	}
+
+	@Test
+	public void testNotSampledRequestIsBuffered() {
+		CollectingHandler handler = new CollectingHandler();
+		SamplingLogFactory logFactory = createLogFactory(new SamplingPolicy(0.0, 60000, 100, 60000), handler);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, logFactory.newCid(), "a", 7);
+		logFactory.logger().log(startEvent);
+		logFactory.logger().log(new EndEvent(Level.INFO, "", startEvent, "result", 16));
+
+		assertEquals("successful fast request should not be logged", 0, handler.records.size());
+	}
+
+	@Test
+	public void testFailedRequestIsFlushed() {
+		CollectingHandler handler = new CollectingHandler();
+		SamplingLogFactory logFactory = createLogFactory(new SamplingPolicy(0.0, 60000, 100, 60000), handler);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, logFactory.newCid(), "a", 7);
+		logFactory.logger().log(startEvent);
+		EndEvent endEvent = new EndEvent(Level.WARNING, "", startEvent);
+		endEvent.setThrown(new IllegalStateException("test"));
+		logFactory.logger().log(endEvent);
+
+		assertEquals("failed request should be logged completely", 2, handler.records.size());
+		assertSame("buffered events should be logged first", startEvent, handler.records.get(0));
+	}
+
+	@Test
+	public void testSlowRequestIsFlushed() {
+		CollectingHandler handler = new CollectingHandler();
+		SamplingLogFactory logFactory = createLogFactory(new SamplingPolicy(0.0, 100, 100, 60000), handler);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, logFactory.newCid(), "a", 7);
+		logFactory.logger().log(startEvent);
+		EndEvent endEvent = new EndEvent(Level.INFO, "", startEvent, "result", 16);
+		endEvent.setMillis(startEvent.getMillis() + 500);
+		logFactory.logger().log(endEvent);
+
+		assertEquals("slow request should be logged completely", 2, handler.records.size());
+	}
+
+	@Test
+	public void testHeadSampledRequestIsLogged() {
+		CollectingHandler handler = new CollectingHandler();
+		SamplingLogFactory logFactory = createLogFactory(new SamplingPolicy(1.0, 60000, 100, 60000), handler);
+
+		SimpleRequestContext ctx = new SimpleRequestContext();
+		StartEvent startEvent = new StartEvent(Level.INFO, "", ctx, executionContext, logFactory.newCid(), "a", 7);
+		logFactory.logger().log(startEvent);
+
+		assertEquals("head sampled request should be logged immediately", 1, handler.records.size());
+	}
+
+	@Test
+	public void testHeadFraction() {
+		SamplingPolicy policy = new SamplingPolicy(0.25, 60000, 100, 60000);
+		int sampled = 0;
+		for (int i = 0; i < 10000; i++) {
+			SimpleRequestContext ctx = new SimpleRequestContext();
+			if (policy.isHeadSampled(ctx.getRequestId()))
+				sampled++;
+			assertEquals("decision should be same for same request id", policy.isHeadSampled(ctx.getRequestId()), policy.isHeadSampled(ctx.getRequestId()));
+		}
+		assertTrue("about quarter of requests should be sampled, but was " + sampled, sampled>2000 && sampled<3000);
+	}
+}
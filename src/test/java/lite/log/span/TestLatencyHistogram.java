@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.span;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+	@Test
+	public void testBuckets() {
+		// small values have own buckets
+		for (long value = 0; value < 8; value++)
+			assertEquals(value, LatencyHistogram.lowerBound(LatencyHistogram.index(value)));
+
+		// every bucket lower bound maps back to same bucket and bucket is at most 12.5% wide
+		for (long value = 8; value < 1000000; value = value * 5 / 4 + 1) {
+			int index = LatencyHistogram.index(value);
+			long lowerBound = LatencyHistogram.lowerBound(index);
+			assertTrue(lowerBound<=value);
+			assertEquals(index, LatencyHistogram.index(lowerBound));
+			assertTrue("relative error too big for " + value, value - lowerBound <= lowerBound / 8);
+		}
+		assertTrue(LatencyHistogram.index(Long.MAX_VALUE) < 64*8);
+		assertTrue(LatencyHistogram.index(9) > LatencyHistogram.index(8));
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(50));
+
+		for (long value = 1; value <= 1000; value++)
+			histogram.record(value);
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(500.5, histogram.getMean(), 0.0001);
+		assertWithin(500, histogram.percentile(50));
+		assertWithin(900, histogram.percentile(90));
+		assertWithin(990, histogram.percentile(99));
+		assertEquals(1, histogram.percentile(0));
+		// bucket lower bound is reported
+		assertWithin(1000, histogram.percentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		histogram.record(-5);
+		assertEquals("negative value is recorded as 0", 0, histogram.percentile(50));
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected about " + expected + " but was " + actual, actual<=expected && expected - actual <= expected / 8);
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.span;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.flow.runtime.kiss.data.LongUniqueId;
+import lite.flow.runtime.kiss.data.SimpleRequestContext;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+
+public class TestSpanAggregatorHandler {
+
+	private static StartEvent start(FlowExecutionContext executionContext, long cid, String methodName) {
+		StartEvent startEvent = new StartEvent(Level.INFO, "", new SimpleRequestContext(), executionContext, new LongUniqueId(cid));
+		startEvent.setSourceClassName("lite.flow.example.component.Adder");
+		startEvent.setSourceMethodName(methodName);
+		return startEvent;
+	}
+
+	@Test
+	public void testStartEndPairs() {
+		SpanAggregatorHandler handler = new SpanAggregatorHandler(null);
+		FlowExecutionContext executionContext = new FlowExecutionContext(null, "Adder");
+
+		StartEvent add1 = start(executionContext, 1, "add");
+		StartEvent add2 = start(executionContext, 2, "add");
+		StartEvent sub = start(executionContext, 3, "sub");
+		handler.publish(add1);
+		handler.publish(add2);
+		handler.publish(sub);
+		handler.publish(new EndEvent(Level.INFO, "", add2));
+		EndEvent failed = new EndEvent(Level.WARNING, "", add1);
+		failed.setThrown(new IllegalStateException("test"));
+		handler.publish(failed);
+		// second end of same span is ignored
+		handler.publish(new EndEvent(Level.INFO, "", add1));
+		// end without start is ignored
+		handler.publish(new EndEvent(Level.INFO, "", new SimpleRequestContext(), executionContext, new LongUniqueId(99)));
+
+		List<SpanSummary> summaries = handler.snapshot(true);
+		assertEquals("only completed spans should be summarized", 1, summaries.size());
+		SpanSummary summary = summaries.get(0);
+		assertNull(summary.flowName);
+		assertEquals("Adder", summary.activityName);
+		assertEquals("lite.flow.example.component.Adder.add", summary.methodName);
+		assertEquals(2, summary.count);
+		assertEquals(1, summary.errors);
+		assertEquals(0.5, summary.getErrorRate(), 0.0001);
+
+		assertTrue("reset should start new period", handler.snapshot(false).isEmpty());
+		// span started before reset is counted in next period
+		handler.publish(new EndEvent(Level.INFO, "", sub));
+		summaries = handler.snapshot(false);
+		assertEquals(1, summaries.size());
+		assertEquals("lite.flow.example.component.Adder.sub", summaries.get(0).methodName);
+		assertEquals(1, summaries.get(0).count);
+	}
+
+	@Test
+	public void testActivitiesAreSeparated() {
+		SpanAggregatorHandler handler = new SpanAggregatorHandler(null);
+		FlowExecutionContext adder = new FlowExecutionContext(null, "Adder");
+		// same names in other context instance is same span
+		FlowExecutionContext sameAdder = new FlowExecutionContext(null, "Adder");
+		FlowExecutionContext other = new FlowExecutionContext(null, "Other");
+
+		StartEvent[] starts = {start(adder, 1, "add"), start(sameAdder, 2, "add"), start(other, 3, "add")};
+		for (StartEvent startEvent : starts)
+			handler.publish(startEvent);
+		for (StartEvent startEvent : starts)
+			handler.publish(new EndEvent(Level.INFO, "", startEvent));
+
+		List<SpanSummary> summaries = handler.snapshot(false);
+		assertEquals(2, summaries.size());
+		for (SpanSummary summary : summaries)
+			assertEquals(summary.activityName.equals("Adder") ? 2 : 1, summary.count);
+	}
+}
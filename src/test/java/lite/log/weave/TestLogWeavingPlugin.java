@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 ToivoAdams
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lite.log.weave;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import lite.flow.runtime.kiss.FlowExecutionContext;
+import lite.log.api.ExecutionContext;
+import lite.log.api.Log;
+import lite.log.api.LogFactory;
+import lite.log.api.Loggable;
+import lite.log.api.Woven;
+import lite.log.api.event.EndEvent;
+import lite.log.api.event.StartEvent;
+import lite.log.intercept.Modifier;
+import lite.log.intercept.TestInterceptSupport;
+import lite.log.intercept.TestInterceptSupport.CollectingHandler;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+
+public class TestLogWeavingPlugin {
+
+	// woven Greeter is loaded by its own class loader (other runtime package), so logging context is kept here, public
+	public static ExecutionContext executionContext;
+	public static LogFactory logFactory;
+
+	public static class Greeter implements Loggable {
+
+		@Log
+		public String greet(String name) {
+			return "Hello " + name;
+		}
+
+		@Log
+		public void fail() {
+			throw new IllegalStateException("test");
+		}
+
+		// advice needs instance, so static method is not woven
+		@Log
+		public static String version() {
+			return "1";
+		}
+
+		@Override
+		public ExecutionContext getExecutionContext() {
+			return executionContext;
+		}
+
+		@Override
+		public LogFactory getLogFactory() {
+			return logFactory;
+		}
+	}
+
+	public static class StaticOnly implements Loggable {
+
+		@Log
+		public static String version() {
+			return "1";
+		}
+
+		@Override
+		public ExecutionContext getExecutionContext() {
+			return executionContext;
+		}
+
+		@Override
+		public LogFactory getLogFactory() {
+			return logFactory;
+		}
+	}
+
+	@Woven
+	public static class WovenBase {
+	}
+
+	public static class NotWoven extends WovenBase {
+	}
+
+	private static Class<?> weave(Class<?> clazz) {
+		LogWeavingPlugin plugin = new LogWeavingPlugin();
+		TypeDescription typeDescription = TypeDescription.ForLoadedType.of(clazz);
+		assertTrue(plugin.matches(typeDescription));
+		return plugin.apply(new ByteBuddy().redefine(clazz), typeDescription, ClassFileLocator.ForClassLoader.of(clazz.getClassLoader()))
+				.make()
+				.load(clazz.getClassLoader(), ClassLoadingStrategy.Default.CHILD_FIRST)
+				.getLoaded();
+	}
+
+	@Test
+	public void testWovenClassLogs() throws ReflectiveOperationException {
+		CollectingHandler handler = new CollectingHandler();
+		logFactory = TestInterceptSupport.createLogFactory(Level.FINE, handler);
+		executionContext = new FlowExecutionContext(null, "greeter");
+
+		Class<?> woven = weave(Greeter.class);
+		assertNotSame(Greeter.class, woven);
+		assertTrue(woven.isAnnotationPresent(Woven.class));
+
+		Object greeter = Modifier.addLogging(woven, executionContext, logFactory).newInstance();
+		assertSame("woven class should not be subclassed again", woven, greeter.getClass());
+
+		assertEquals("Hello flow", woven.getMethod("greet", String.class).invoke(greeter, "flow"));
+		assertEquals("woven method should be logged once", 2, handler.records.size());
+		assertTrue(handler.records.get(0) instanceof StartEvent);
+		assertEquals("greet", handler.records.get(0).getSourceMethodName());
+		assertTrue(handler.records.get(1) instanceof EndEvent);
+
+		assertEquals("1", woven.getMethod("version").invoke(null));
+		assertEquals("static method should not be logged", 2, handler.records.size());
+	}
+
+	@Test
+	public void testOnlyStaticLogMethodsAreNotWoven() {
+		assertFalse(new LogWeavingPlugin().matches(TypeDescription.ForLoadedType.of(StaticOnly.class)));
+	}
+
+	@Test
+	public void testWovenFailureIsLoggedAtDefaultLevel() throws ReflectiveOperationException {
+		CollectingHandler handler = new CollectingHandler();
+		logFactory = TestInterceptSupport.createLogFactory(Level.INFO, handler);
+		executionContext = new FlowExecutionContext(null, "greeter");
+
+		Class<?> woven = weave(Greeter.class);
+		Object greeter = woven.newInstance();
+		woven.getMethod("greet", String.class).invoke(greeter, "flow");
+		assertTrue("successful call should not be logged", handler.records.isEmpty());
+		try {
+			woven.getMethod("fail").invoke(greeter);
+			fail("failure should be thrown");
+		} catch (InvocationTargetException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(1, handler.records.size());
+		assertEquals(Level.WARNING, handler.records.get(0).getLevel());
+		assertTrue(handler.records.get(0).getThrown() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testWovenIsNotInherited() {
+		assertTrue(WovenBase.class.isAnnotationPresent(Woven.class));
+		assertFalse("subclass which is not woven should get runtime logging", NotWoven.class.isAnnotationPresent(Woven.class));
+	}
+}